@@ -42,6 +42,7 @@ public class GraphAnimation extends PApplet {
 
         plt.set(ScatterPlot.Setting.show_axes, true);
         plt.set(ScatterPlot.Setting.show_border, true);
+        plt.set(ScatterPlot.Setting.cache_layers, true); // only the moving functions change each frame
 
         plt.plot(x, y1).fillColor("red").strokeColor("red").style("-");
         plt.plot(x, y2).fillColor("blue").strokeColor("blue").style("-");
@@ -65,18 +66,14 @@ public class GraphAnimation extends PApplet {
                     y4[i] = y4[i] - dy[i];
                 }
 
-                plt.removePlot(2);
-                plt.removePlot(2);
-                plt.plot(x, y3).fillColor("red").strokeColor("red").style(".");
-                plt.plot(x, y4).fillColor("blue").strokeColor("blue").style(".");
+                plt.updatePlot(2, y3);
+                plt.updatePlot(3, y4);
             } else if (time >= timeSteps + 2 * pauseAmount) {
                 time = -30;
-                plt.removePlot(2);
-                plt.removePlot(2);
                 y3 = MathUtils.apply(f_main, x);
                 y4 = MathUtils.apply(f_sub, x);
-                plt.plot(x, y3).fillColor("red").strokeColor("red").style(".");
-                plt.plot(x, y4).fillColor("blue").strokeColor("blue").style(".");
+                plt.updatePlot(2, y3);
+                plt.updatePlot(3, y4);
             }
         } else {
             fill(0);
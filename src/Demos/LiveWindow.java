@@ -0,0 +1,22 @@
+package Demos;
+
+import Plot.PlotWindow;
+import Plot.TimeSeriesPlot;
+
+public class LiveWindow {
+    public static void main(String[] args) throws InterruptedException {
+        TimeSeriesPlot plt = new TimeSeriesPlot(100, 100, 700, 500, 500);
+        plt.set(TimeSeriesPlot.Setting.show_axes, true);
+        plt.set(TimeSeriesPlot.Setting.show_border, true);
+        plt.plot(0, 0, 0).strokeColor("red").style("-");
+
+        // the window shows plt itself, so samples added below appear as they arrive
+        PlotWindow window = PlotWindow.getLiveWindowFor(plt, 800, 600);
+        window.show();
+
+        for (int t = 1; ; t++) {
+            plt.offer(0, t, Math.sin(t / 20.0) + 0.3 * Math.random());
+            Thread.sleep(5);
+        }
+    }
+}
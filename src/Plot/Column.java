@@ -0,0 +1,47 @@
+package Plot;
+
+/***
+ * Read access to a column of doubles backing the x or y coordinates of a
+ * PlotData set. DoubleColumn is the growable one on the heap; read-only columns
+ * such as MappedDoubleColumn only implement these methods, so there is no way to
+ * write to them.
+ */
+abstract class Column {
+    abstract int size();
+
+    /***
+     * Get how many values the column can hold without growing (or, if bounded,
+     * before it starts evicting).
+     *
+     * @return the capacity
+     */
+    abstract int capacity();
+
+    abstract boolean isBounded();
+
+    abstract boolean isFull();
+
+    /***
+     * Check whether the values live outside the Java heap, so that caching
+     * anything per value on the heap would defeat the point.
+     *
+     * @return true for off-heap columns
+     */
+    abstract boolean isOffHeap();
+
+    abstract double get(int i);
+
+    /***
+     * Create an independent copy of this column.
+     *
+     * @return the copy
+     */
+    abstract Column copy();
+
+    /***
+     * Copy the values of this column, in order, into the start of dest.
+     *
+     * @param dest array of length at least size()
+     */
+    abstract void copyTo(double[] dest);
+}
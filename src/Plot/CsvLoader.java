@@ -0,0 +1,415 @@
+package Plot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/***
+ * Loads two columns of a CSV or TSV file into a PlotData. The file is streamed
+ * through a byte buffer and numbers are parsed straight from the bytes into
+ * primitive columns, without creating a String per line or field, so large
+ * files load at close to the speed they can be read.
+ *
+ * Example:
+ *
+ * <pre>
+ * PlotData data = new CsvLoader(Paths.get("export.csv")).columns("time", "value").load();
+ * </pre>
+ *
+ * Fields may be quoted, and quoted fields may contain the delimiter (but not
+ * line breaks). Lines may end in \n or \r\n. Rows where either column is
+ * missing or isn't a number are skipped.
+ */
+public class CsvLoader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_PRESIZE = 1 << 26; // most rows to allocate up front from an estimate
+    private static final int MAX_FAST_DIGITS = 18; // digits that always fit in a long
+    private static final long MAX_EXACT_MANTISSA = 1L << 53; // larger longs aren't all exact doubles
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private final Path file;
+    private byte delimiter;
+    private boolean hasHeader;
+    private int xColumn = 0, yColumn = 1;
+    private String xName, yName;
+
+    // state of one load
+    private boolean parseFailed;
+    private int skippedRows;
+
+    /***
+     * Create a loader for file. Files ending in .tsv are read as tab separated,
+     * anything else as comma separated; by default there is no header row and
+     * x and y are the first two columns.
+     *
+     * @param file the file to load
+     */
+    public CsvLoader(Path file) {
+        this.file = file;
+        this.delimiter = file.toString().toLowerCase().endsWith(".tsv") ? (byte) '\t' : (byte) ',';
+    }
+
+    /***
+     * Set the character separating fields.
+     *
+     * @param delimiter an ASCII character such as ',', ';' or '\t'
+     * @return this CsvLoader object
+     */
+    public CsvLoader delimiter(char delimiter) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r' || delimiter == '"') {
+            System.err.println("Error: delimiter must be an ASCII character other than a quote or line break");
+            return this;
+        }
+        this.delimiter = (byte) delimiter;
+        return this;
+    }
+
+    /***
+     * Set whether the first line of the file is a header row to skip.
+     *
+     * @param hasHeader true if the file has a header row
+     * @return this CsvLoader object
+     */
+    public CsvLoader header(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+        return this;
+    }
+
+    /***
+     * Pick the x and y columns by index.
+     *
+     * @param xColumn index of the x column (starting at 0)
+     * @param yColumn index of the y column (starting at 0)
+     * @return this CsvLoader object
+     */
+    public CsvLoader columns(int xColumn, int yColumn) {
+        if (xColumn < 0 || yColumn < 0) {
+            System.err.println("Error: column index out of bounds");
+            return this;
+        }
+        this.xColumn = xColumn;
+        this.yColumn = yColumn;
+        this.xName = null;
+        this.yName = null;
+        return this;
+    }
+
+    /***
+     * Pick the x and y columns by their name in the header row (which implies
+     * the file has one).
+     *
+     * @param xName header of the x column
+     * @param yName header of the y column
+     * @return this CsvLoader object
+     */
+    public CsvLoader columns(String xName, String yName) {
+        this.xName = xName;
+        this.yName = yName;
+        this.hasHeader = true;
+        return this;
+    }
+
+    /***
+     * Read the file.
+     *
+     * @return the points of the x and y columns, in file order
+     * @throws IOException if the file can't be read, or a named column isn't in
+     *                     the header
+     */
+    public PlotData load() throws IOException {
+        DoubleColumn xs = new DoubleColumn();
+        DoubleColumn ys = new DoubleColumn();
+        skippedRows = 0;
+        boolean needHeader = hasHeader;
+        boolean sized = false;
+        long consumed = 0; // bytes of the file before bytes[0]
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int pos = 0, end = 0; // unparsed bytes are bytes[pos, end)
+            boolean eof = false;
+
+            while (true) {
+                int newline = indexOf(bytes, (byte) '\n', pos, end);
+                if (newline < 0) {
+                    if (eof) {
+                        if (needHeader) {
+                            readHeader(bytes, pos, end); // a header-only file without a final newline
+                        } else if (pos < end) {
+                            parseRow(bytes, pos, end, xs, ys);
+                        }
+                        break;
+                    }
+
+                    if (!sized && xs.size() > 0) {
+                        // guess the number of rows from the average length of those in the first buffer
+                        long estimate = (long) ((double) xs.size() * channel.size() / (consumed + pos));
+                        xs.ensureCapacity((int) Math.min(estimate, MAX_PRESIZE));
+                        ys.ensureCapacity((int) Math.min(estimate, MAX_PRESIZE));
+                        sized = true;
+                    }
+
+                    // move the partial line to the front and read more after it
+                    consumed += pos;
+                    int rest = end - pos;
+                    if (rest == bytes.length) {
+                        bytes = Arrays.copyOf(bytes, 2 * bytes.length); // line longer than the buffer
+                        buffer = ByteBuffer.wrap(bytes);
+                    } else {
+                        System.arraycopy(bytes, pos, bytes, 0, rest);
+                    }
+                    pos = 0;
+                    end = rest;
+                    buffer.limit(bytes.length).position(end);
+                    int read = channel.read(buffer);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        end += read;
+                    }
+                    continue;
+                }
+
+                if (needHeader) {
+                    readHeader(bytes, pos, newline);
+                    needHeader = false;
+                } else {
+                    parseRow(bytes, pos, newline, xs, ys);
+                }
+                pos = newline + 1;
+            }
+        }
+
+        // the estimate can be too high if later rows are longer than the first ones
+        xs.trimToSize();
+        ys.trimToSize();
+        if (skippedRows > 0) {
+            System.err.println("Warning: skipped " + skippedRows + " rows of " + file + " that couldn't be parsed");
+        }
+        return new PlotData(xs, ys);
+    }
+
+    /***
+     * Find the x and y columns by name in the header row bytes[from, to).
+     */
+    private void readHeader(byte[] bytes, int from, int to) throws IOException {
+        if (xName == null) {
+            return; // columns picked by index; the header is only skipped
+        }
+
+        int x = -1, y = -1;
+        for (int i = 0, fieldStart = from; fieldStart <= to; i++) {
+            int fieldEnd = fieldEnd(bytes, fieldStart, to);
+            String name = new String(bytes, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8).trim();
+            if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            if (x < 0 && name.equals(xName))
+                x = i;
+            if (y < 0 && name.equals(yName))
+                y = i;
+            fieldStart = fieldEnd + 1;
+        }
+
+        if (x < 0 || y < 0) {
+            throw new IOException("Column '" + (x < 0 ? xName : yName) + "' not found in header of " + file);
+        }
+        xColumn = x;
+        yColumn = y;
+    }
+
+    /***
+     * Parse the row bytes[from, to) (without its \n) and add its point.
+     */
+    private void parseRow(byte[] bytes, int from, int to, DoubleColumn xs, DoubleColumn ys) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return; // blank line
+        }
+
+        parseFailed = false;
+        double x = 0, y = 0;
+        int lastColumn = Math.max(xColumn, yColumn);
+        int field = 0;
+        for (int fieldStart = from; fieldStart <= to && field <= lastColumn; field++) {
+            int fieldEnd = fieldEnd(bytes, fieldStart, to);
+            if (field == xColumn) {
+                x = parseNumber(bytes, fieldStart, fieldEnd);
+            }
+            if (field == yColumn) {
+                y = parseNumber(bytes, fieldStart, fieldEnd);
+            }
+            fieldStart = fieldEnd + 1;
+        }
+
+        if (parseFailed || field <= lastColumn) {
+            skippedRows++;
+            return;
+        }
+        xs.add(x);
+        ys.add(y);
+    }
+
+    /***
+     * Find the end of the field starting at bytes[from]: the index of the next
+     * delimiter that isn't inside quotes, or to if there is none.
+     */
+    private int fieldEnd(byte[] bytes, int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '"') {
+                quoted = !quoted; // an escaped quote ("") toggles twice
+            } else if (b == delimiter && !quoted) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /***
+     * Parse the number in bytes[from, to). Plain decimals (optionally with an
+     * exponent) are parsed directly, falling back to Double.parseDouble only when
+     * they have too many digits to parse exactly; besides those only NaN and
+     * Infinity are numbers. Sets parseFailed if the field isn't a number.
+     */
+    private double parseNumber(byte[] bytes, int from, int to) {
+        while (from < to && (isWhitespace(bytes[from]) || bytes[from] == '"'))
+            from++;
+        while (to > from && (isWhitespace(bytes[to - 1]) || bytes[to - 1] == '"'))
+            to--;
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0; // significant digits in mantissa
+        int exponent = 0;
+        boolean anyDigits = false;
+        for (; i < to && isDigit(bytes[i]); i++) {
+            if (numDigits < MAX_FAST_DIGITS) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0)
+                    numDigits++;
+            } else {
+                exponent++; // digit dropped from the mantissa
+            }
+            anyDigits = true;
+        }
+        if (i < to && bytes[i] == '.') {
+            for (i++; i < to && isDigit(bytes[i]); i++) {
+                if (numDigits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    if (mantissa != 0)
+                        numDigits++;
+                    exponent--;
+                }
+                anyDigits = true;
+            }
+        }
+        if (anyDigits && i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int e = 0;
+            int expStart = i;
+            for (; i < to && isDigit(bytes[i]); i++) {
+                e = Math.min(e * 10 + (bytes[i] - '0'), 100000);
+            }
+            if (i == expStart) {
+                parseFailed = true; // exponent without digits
+                return 0;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if (!anyDigits || i != to) {
+            // not a decimal; Double.parseDouble would also take Java literals like 1d or 0x1p3
+            return parseSpecial(bytes, from, to);
+        }
+        if (numDigits >= MAX_FAST_DIGITS) {
+            return parseSlowly(bytes, from, to);
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        // both the mantissa and the power of ten are exact doubles here, so one
+        // multiply or divide gives the correctly rounded result
+        if (mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return parseSlowly(bytes, from, to);
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private double parseSlowly(byte[] bytes, int from, int to) {
+        try {
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            parseFailed = true;
+            return 0;
+        }
+    }
+
+    /***
+     * Parse NaN or Infinity, optionally signed, in bytes[from, to). Sets
+     * parseFailed if the field is anything else.
+     */
+    private double parseSpecial(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (matches(bytes, i, to, "NaN")) {
+            return Double.NaN;
+        }
+        if (matches(bytes, i, to, "Infinity")) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        parseFailed = true;
+        return 0;
+    }
+
+    private static boolean matches(byte[] bytes, int from, int to, String word) {
+        if (to - from != word.length())
+            return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (bytes[from + i] != word.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' '; // like String.trim(), which Double.parseDouble uses
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b)
+                return i;
+        }
+        return -1;
+    }
+}
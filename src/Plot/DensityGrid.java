@@ -0,0 +1,122 @@
+package Plot;
+
+import java.util.Arrays;
+
+/***
+ * Per-pixel count of how many points of a dataset land in each pixel of the
+ * plot, rendered as an image whose opacity shows the density. Used for the
+ * DENSITY style, where a dataset has so many points that drawing each one
+ * would just fill the plot.
+ *
+ * Binning is one pass over the points in view and only happens after the data
+ * or view changes; every other frame just draws the cached image.
+ */
+class DensityGrid {
+    private static final int MIN_ALPHA = 48; // so single points are still visible
+
+    private int[] counts = new int[0];
+    private int[] pixels; // ARGB image of the counts
+    private int left, top, width, height; // plot rectangle the grid covers
+    private ScreenTransform builtFor; // transform the counts were binned with
+    private int builtColor;
+    private boolean builtLogScale;
+
+    /***
+     * Re-bin and re-color the grid if the data, view, color or scale have
+     * changed since it was last built.
+     *
+     * @param data      the dataset, already rescaled
+     * @param transform the transform the dataset was last rescaled with
+     * @param view      position and data view of the plot the dataset is in
+     * @param color     color of the densest pixel
+     * @param logScale  map counts to opacity on a log scale instead of linearly
+     */
+    void update(PlotData data, ScreenTransform transform, ScreenTransform view, int color, boolean logScale) {
+        int newLeft = (int) Math.ceil(view.getLeftX());
+        int newTop = (int) Math.ceil(view.getTopY());
+        int newWidth = (int) view.getRightX() - newLeft + 1;
+        int newHeight = (int) view.getBottomY() - newTop + 1;
+        boolean resized = newLeft != left || newTop != top || newWidth != width || newHeight != height;
+
+        if (resized || pixels == null) {
+            left = newLeft;
+            top = newTop;
+            width = Math.max(1, newWidth);
+            height = Math.max(1, newHeight);
+            counts = new int[width * height];
+            pixels = new int[width * height];
+            builtFor = null;
+        }
+
+        if (builtFor == transform && builtColor == color && builtLogScale == logScale)
+            return;
+
+        int max = bin(data);
+        colorize(max, color, logScale);
+        builtFor = transform;
+        builtColor = color;
+        builtLogScale = logScale;
+    }
+
+    int[] getPixels() {
+        return pixels;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    int getLeft() {
+        return left;
+    }
+
+    int getTop() {
+        return top;
+    }
+
+    /***
+     * Count the points in each pixel.
+     *
+     * @return the largest count
+     */
+    private int bin(PlotData data) {
+        Arrays.fill(counts, 0);
+        int max = 0;
+        int numDrawn = data.getNumDrawn();
+        for (int k = 0; k < numDrawn; k++) {
+            int i = data.getDrawnIndex(k);
+            int px = (int) data.getDisplayX(i) - left;
+            int py = (int) data.getDisplayY(i) - top;
+            if (px < 0 || px >= width || py < 0 || py >= height)
+                continue;
+
+            int count = ++counts[py * width + px];
+            if (count > max)
+                max = count;
+        }
+        return max;
+    }
+
+    /***
+     * Write the image pixels: empty pixels are transparent, others are color
+     * with opacity increasing with the count.
+     */
+    private void colorize(int max, int color, boolean logScale) {
+        int rgb = color & 0x00FFFFFF;
+        double scale = logScale ? Math.log1p(max) : max;
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            if (count == 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            double t = (logScale ? Math.log1p(count) : count) / scale;
+            int alpha = MIN_ALPHA + (int) ((255 - MIN_ALPHA) * t);
+            pixels[i] = (alpha << 24) | rgb;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package Plot;
+
+import java.util.Arrays;
+
+/***
+ * Growable array of primitive doubles. Backs the x and y coordinates of a
+ * PlotData set so that each data point costs 8 bytes per coordinate instead of
+ * a boxed Double plus a list slot.
+ *
+ * Values are stored in a circular buffer, so removing the first value is O(1).
+ * A column can also be bounded to a fixed capacity, in which case adding to a
+ * full column evicts the oldest value instead of growing.
+ *
+ * A column can wrap an array owned by someone else without copying it. Such a
+ * column sees changes made to the array, and copies it before its own first
+ * write so the owner's array is never modified.
+ *
+ * Copies of a column share its array (copy-on-write): copying is O(1), and
+ * whichever of them writes first takes its own copy of the array.
+ */
+class DoubleColumn extends Column {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] values;
+    private int head; // index in values of the first element
+    private int size;
+    private boolean bounded; // evict oldest value instead of growing when full?
+    private boolean shared; // values is owned elsewhere or shared with a copy; copy it before writing
+    private boolean borrowed; // values is the caller's array from wrap(), and may change under us
+
+    /***
+     * Create an empty column.
+     */
+    DoubleColumn() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /***
+     * Create an empty column that can hold capacity values before growing.
+     *
+     * @param capacity initial capacity of the column
+     */
+    DoubleColumn(int capacity) {
+        this.values = new double[capacity];
+        this.size = 0;
+    }
+
+    /***
+     * Create a column holding a copy of the values in arr.
+     *
+     * @param arr values to copy
+     */
+    DoubleColumn(double[] arr) {
+        this.values = Arrays.copyOf(arr, Math.max(arr.length, DEFAULT_CAPACITY));
+        this.size = arr.length;
+    }
+
+    /***
+     * Create a column holding a copy of the values in toCopy, which may be a
+     * read-only column.
+     *
+     * @param toCopy column to copy
+     */
+    DoubleColumn(Column toCopy) {
+        this.values = new double[toCopy.isBounded() ? toCopy.capacity() : Math.max(toCopy.size(), DEFAULT_CAPACITY)];
+        toCopy.copyTo(this.values);
+        this.size = toCopy.size();
+        this.bounded = toCopy.isBounded();
+    }
+
+    /***
+     * Create a column backed directly by arr (no copy).
+     *
+     * @param arr values of the column
+     * @return the column
+     */
+    static DoubleColumn wrap(double[] arr) {
+        DoubleColumn column = new DoubleColumn(0);
+        column.values = arr;
+        column.size = arr.length;
+        column.shared = true;
+        column.borrowed = true;
+        return column;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    boolean isBounded() {
+        return bounded;
+    }
+
+    boolean isFull() {
+        return size == values.length;
+    }
+
+    boolean isOffHeap() {
+        return false;
+    }
+
+    /***
+     * Create an independent copy of this column. The copy shares the backing
+     * array until either column writes to it, unless the array was wrapped
+     * (the caller may change it in place, so it is copied right away).
+     *
+     * @return the copy
+     */
+    DoubleColumn copy() {
+        if (borrowed) {
+            return new DoubleColumn(this);
+        }
+
+        DoubleColumn copy = new DoubleColumn(0);
+        copy.values = values;
+        copy.head = head;
+        copy.size = size;
+        copy.bounded = bounded;
+        copy.shared = true;
+        this.shared = true;
+        return copy;
+    }
+
+    double get(int i) {
+        return values[indexOf(i)];
+    }
+
+    void set(int i, double val) {
+        unshare();
+        values[indexOf(i)] = val;
+    }
+
+    /***
+     * Append val to the end of the column. If the column is full it either grows
+     * or, if bounded, overwrites the oldest value.
+     *
+     * @param val value to append
+     */
+    void add(double val) {
+        unshare();
+        if (size == values.length) {
+            if (bounded) {
+                values[head] = val;
+                head = (head + 1 == values.length) ? 0 : head + 1;
+                return;
+            }
+            grow(size + 1);
+        }
+        values[indexOf(size)] = val;
+        size++;
+    }
+
+    /***
+     * Replace the contents of the column with the values in src, re-using the
+     * backing array when it is big enough. A bounded column keeps only the last
+     * capacity values of src.
+     *
+     * @param src the new values
+     */
+    void setAll(double[] src) {
+        int n = bounded ? Math.min(src.length, values.length) : src.length;
+        if (shared || n > values.length) {
+            values = new double[bounded ? values.length : n];
+            shared = false;
+            borrowed = false;
+        }
+        System.arraycopy(src, src.length - n, values, 0, n);
+        head = 0;
+        size = n;
+    }
+
+    /***
+     * Remove the value at index, shifting later values down by one. Removing the
+     * first value is O(1).
+     *
+     * @param index index of the value to remove
+     */
+    void remove(int index) {
+        if (index == 0) {
+            head = (head + 1 == values.length) ? 0 : head + 1;
+            size--;
+            return;
+        }
+
+        unshare();
+        unwrap();
+        int numMoved = size - index - 1;
+        if (numMoved > 0) {
+            System.arraycopy(values, index + 1, values, index, numMoved);
+        }
+        size--;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /***
+     * Make sure the backing array can hold at least minCapacity values without
+     * re-allocating. Has no effect on a bounded column.
+     *
+     * @param minCapacity number of values the column should be able to hold
+     */
+    void ensureCapacity(int minCapacity) {
+        if (!bounded && minCapacity > values.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /***
+     * Shrink the backing array to the number of values in the column. Has no
+     * effect on a bounded column or one whose array is shared.
+     */
+    void trimToSize() {
+        if (bounded || shared || values.length == size) {
+            return;
+        }
+        double[] newValues = new double[size];
+        copyTo(newValues);
+        values = newValues;
+        head = 0;
+    }
+
+    /***
+     * Fix the capacity of the column at maxSize. Only the newest maxSize values
+     * are kept, and from then on adding to a full column evicts the oldest value.
+     *
+     * @param maxSize the number of values the column can hold
+     */
+    void bound(int maxSize) {
+        int keep = Math.min(size, maxSize);
+        double[] newValues = new double[maxSize];
+        for (int i = 0; i < keep; i++) {
+            newValues[i] = get(size - keep + i);
+        }
+        this.values = newValues;
+        this.head = 0;
+        this.size = keep;
+        this.bounded = true;
+        this.shared = false;
+        this.borrowed = false;
+    }
+
+    /***
+     * Copy the values of this column, in order, into the start of dest.
+     *
+     * @param dest array of length at least size()
+     */
+    void copyTo(double[] dest) {
+        int firstPart = Math.min(size, values.length - head);
+        System.arraycopy(values, head, dest, 0, firstPart);
+        System.arraycopy(values, 0, dest, firstPart, size - firstPart);
+    }
+
+    /***
+     * Take a private copy of values if it is shared, so it can be written to.
+     */
+    private void unshare() {
+        if (shared) {
+            values = Arrays.copyOf(values, values.length);
+            shared = false;
+            borrowed = false;
+        }
+    }
+
+    private int indexOf(int i) {
+        int index = head + i;
+        return (index >= values.length) ? index - values.length : index;
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, values.length + (values.length >> 1));
+        double[] newValues = new double[newCapacity];
+        copyTo(newValues);
+        values = newValues;
+        head = 0;
+        shared = false;
+        borrowed = false;
+    }
+
+    /***
+     * Move the values so that the first one is at index 0 of the backing array.
+     */
+    private void unwrap() {
+        if (head == 0) {
+            return;
+        }
+        double[] newValues = new double[values.length];
+        copyTo(newValues);
+        values = newValues;
+        head = 0;
+    }
+}
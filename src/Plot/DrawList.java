@@ -0,0 +1,138 @@
+package Plot;
+
+/***
+ * Immutable list of drawing calls recorded by a RecordingRenderer, with all
+ * vertices already transformed, clipped and decimated. Can be drawn any number
+ * of times, from any thread that owns the target renderer.
+ */
+class DrawList {
+    // opcodes in ops; int arguments follow the opcode in ops, float arguments are
+    // taken in order from floats and object arguments in order from objects
+    static final int FILL = 0; // color
+    static final int NO_FILL = 1;
+    static final int STROKE = 2; // color
+    static final int STROKE_WEIGHT = 3; // (weight)
+    static final int LINE = 4; // (x1, y1, x2, y2)
+    static final int RECT = 5; // (x, y, width, height)
+    static final int BEGIN_SHAPE = 6; // kind, vertex count, (x, y) per vertex
+    static final int TEXT_SIZE = 7; // (size)
+    static final int TEXT_ALIGN = 8; // alignX, alignY
+    static final int TEXT = 9; // (x, y) {text}
+    static final int IMAGE = 10; // width, height, pixel density, (x, y) {pixels}
+    static final int BACKGROUND = 11; // color
+    static final int CLEAR = 12;
+    static final int LAYER = 13; // (x, y) {DrawList of the layer}
+
+    private final int width, height, pixelDensity; // size of the target it was recorded for
+    private final int[] ops;
+    private final float[] floats;
+    private final Object[] objects;
+
+    // layer this list was last drawn into, when it's drawn as a layer
+    private Renderer layer;
+    private Renderer layerFor;
+
+    DrawList(int width, int height, int pixelDensity, int[] ops, float[] floats, Object[] objects) {
+        this.width = width;
+        this.height = height;
+        this.pixelDensity = pixelDensity;
+        this.ops = ops;
+        this.floats = floats;
+        this.objects = objects;
+    }
+
+    /***
+     * Check whether this list was recorded for a target of the given size.
+     *
+     * @return true if the sizes match
+     */
+    boolean isFor(int width, int height, int pixelDensity) {
+        return width == this.width && height == this.height && pixelDensity == this.pixelDensity;
+    }
+
+    /***
+     * Replay the recorded calls onto a renderer.
+     *
+     * @param r the renderer to draw with
+     */
+    void drawTo(Renderer r) {
+        int f = 0, o = 0;
+        for (int i = 0; i < ops.length;) {
+            switch (ops[i++]) {
+                case FILL:
+                    r.fill(ops[i++]);
+                    break;
+                case NO_FILL:
+                    r.noFill();
+                    break;
+                case STROKE:
+                    r.stroke(ops[i++]);
+                    break;
+                case STROKE_WEIGHT:
+                    r.strokeWeight(floats[f++]);
+                    break;
+                case LINE:
+                    r.line(floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case RECT:
+                    r.rect(floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case BEGIN_SHAPE:
+                    r.beginShape(ops[i++]);
+                    for (int end = f + 2 * ops[i++]; f < end; f += 2) {
+                        r.vertex(floats[f], floats[f + 1]);
+                    }
+                    r.endShape();
+                    break;
+                case TEXT_SIZE:
+                    r.textSize(floats[f++]);
+                    break;
+                case TEXT_ALIGN:
+                    r.textAlign(ops[i], ops[i + 1]);
+                    i += 2;
+                    break;
+                case TEXT:
+                    r.text((String) objects[o++], floats[f], floats[f + 1]);
+                    f += 2;
+                    break;
+                case IMAGE:
+                    r.image((int[]) objects[o++], ops[i], ops[i + 1], ops[i + 2], floats[f], floats[f + 1]);
+                    i += 3;
+                    f += 2;
+                    break;
+                case BACKGROUND:
+                    r.background(ops[i++]);
+                    break;
+                case CLEAR:
+                    r.clear();
+                    break;
+                case LAYER:
+                    r.drawLayer(((DrawList) objects[o++]).toLayer(r), floats[f], floats[f + 1]);
+                    f += 2;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown draw op " + ops[i - 1]);
+            }
+        }
+    }
+
+    /***
+     * Get a layer of r with this list drawn into it. The layer is kept, so a
+     * list that is drawn every frame is only drawn into a layer once.
+     */
+    private Renderer toLayer(Renderer r) {
+        if (layerFor != r) {
+            if (layer != null)
+                layer.dispose();
+            layer = r.createLayer(width, height);
+            layer.beginDraw();
+            layer.clear();
+            drawTo(layer);
+            layer.endDraw();
+            layerFor = r;
+        }
+        return layer;
+    }
+}
@@ -0,0 +1,238 @@
+package Plot;
+
+/***
+ * Picks a subset of a dataset's points that keeps the visual shape of the
+ * series, using Largest-Triangle-Three-Buckets (LTTB). The points in view are
+ * split into buckets and from each bucket the point forming the largest
+ * triangle with the previously chosen point and the average of the next bucket
+ * is kept, so peaks and troughs survive.
+ *
+ * The selection is updated incrementally. Buckets are a fixed number of points
+ * wide and aligned to each point's position in the stream of points ever added
+ * (so they don't move when the oldest points are evicted). A bucket whose
+ * points, next bucket and previous pick haven't changed keeps its pick, so
+ * appending points, evicting old ones or panning the view only re-picks the
+ * buckets at the ends of the range (and, from the start, only until a re-pick
+ * matches the old one). The result is the same as sampling from scratch with
+ * the same buckets. The buckets are rebuilt from scratch when the data is changed
+ * in any other way, or when the range in view has grown or shrunk so much that
+ * the number of buckets is out of bounds.
+ *
+ * A sampler can be copied along with its dataset, so a snapshot drawn on
+ * another thread carries on from the buckets of the last snapshot drawn. Copying
+ * and sampling are synchronized for that.
+ */
+class LTTBSampler {
+    private final int target;
+    private int[] indices; // selected data indices
+    private int size;
+
+    // what the cached indices were calculated for
+    private int sampledVersion = -1;
+    private double sampledMinX, sampledMaxX;
+
+    // buckets, in positions counted from the first point ever added
+    private long bucketWidth; // points per bucket, 0 until the buckets are built
+    private long firstBucket; // bucket of picks[0]
+    private long[] picks, newPicks; // position picked in each bucket
+    private int numBuckets;
+    private long sampledFrom, sampledTo; // range of positions the picks were made for
+    private int sampledRewrites;
+
+    /***
+     * Create a sampler that keeps at most target points.
+     *
+     * @param target number of points to keep (at least 3)
+     */
+    LTTBSampler(int target) {
+        this.target = target;
+        this.indices = new int[target];
+        this.picks = new long[target - 2];
+        this.newPicks = new long[target - 2];
+    }
+
+    /***
+     * Create a copy that re-uses this sampler's buckets and picks the next time
+     * it samples a copy of the same data. The copy's selection is never current:
+     * it belongs to a new dataset, whose version numbers are unrelated.
+     *
+     * @return the copy
+     */
+    synchronized LTTBSampler copy() {
+        LTTBSampler copy = new LTTBSampler(target);
+        System.arraycopy(indices, 0, copy.indices, 0, size);
+        copy.size = size;
+        copy.bucketWidth = bucketWidth;
+        copy.firstBucket = firstBucket;
+        System.arraycopy(picks, 0, copy.picks, 0, numBuckets);
+        copy.numBuckets = numBuckets;
+        copy.sampledFrom = sampledFrom;
+        copy.sampledTo = sampledTo;
+        copy.sampledRewrites = sampledRewrites;
+        return copy;
+    }
+
+    int getTarget() {
+        return target;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /***
+     * Get the data index of the k'th selected point. Selected indices are in
+     * increasing order.
+     *
+     * @param k which selected point
+     * @return index into the dataset
+     */
+    int get(int k) {
+        return indices[k];
+    }
+
+    /***
+     * Check whether the cached selection was made for this data version and x
+     * range in view.
+     *
+     * @param version  the current version of the data
+     * @param viewMinX minimum x in view
+     * @param viewMaxX maximum x in view
+     * @return true if the selection can be re-used
+     */
+    boolean isCurrent(int version, double viewMinX, double viewMaxX) {
+        return version == sampledVersion && viewMinX == sampledMinX && viewMaxX == sampledMaxX;
+    }
+
+    /***
+     * Select the points of data in [from, to) to draw.
+     *
+     * @param data     the dataset to sample
+     * @param from     index of the first point in view (or just before it)
+     * @param to       index after the last point in view (or just after it)
+     * @param version  the current version of the data
+     * @param viewMinX minimum x in view
+     * @param viewMaxX maximum x in view
+     */
+    synchronized void sample(PlotData data, int from, int to, int version, double viewMinX, double viewMaxX) {
+        sampledVersion = version;
+        sampledMinX = viewMinX;
+        sampledMaxX = viewMaxX;
+
+        int n = to - from;
+        size = 0;
+        if (n <= target) {
+            for (int i = from; i < to; i++) {
+                indices[size++] = i;
+            }
+            bucketWidth = 0; // nothing to keep
+            return;
+        }
+
+        long offset = data.getNumEvicted(); // position of index 0
+        long start = offset + from, end = offset + to;
+        int maxBuckets = target - 2; // the first and last points are always kept
+        int count = bucketWidth == 0 ? 0 : countBuckets(start, end);
+        if (bucketWidth == 0 || data.getNumRewrites() != sampledRewrites || count > maxBuckets
+                || count < maxBuckets / 2) {
+            // fill about three quarters of the buckets, leaving room to grow before the next rebuild
+            bucketWidth = (long) Math.max(1, Math.ceil(n / (0.75 * maxBuckets)));
+            while (countBuckets(start, end) > maxBuckets) {
+                bucketWidth *= 2;
+            }
+            count = countBuckets(start, end);
+            numBuckets = 0; // no pick can be kept
+            sampledRewrites = data.getNumRewrites();
+        }
+
+        pick(data, offset, start, end, count);
+        sampledFrom = start;
+        sampledTo = end;
+
+        indices[size++] = from;
+        for (int k = 0; k < numBuckets; k++) {
+            indices[size++] = (int) (picks[k] - offset);
+        }
+        indices[size++] = to - 1;
+    }
+
+    /***
+     * Pick a point from each of the count buckets covering the points strictly
+     * between start and end - 1, re-using picks that can't have changed.
+     */
+    private void pick(PlotData data, long offset, long start, long end, int count) {
+        long first = (start + 1) / bucketWidth;
+        for (int k = 0; k < count; k++) {
+            long bucket = first + k;
+            long old = bucket - firstBucket;
+            // the triangle's other corners are the previous pick and the next bucket, so the old pick
+            // only stands if both are unchanged; once a re-pick matches the old one, the rest stand again
+            if (k > 0 && old > 0 && old < numBuckets && newPicks[k - 1] == picks[(int) old - 1]
+                    && isSettled(bucket, start, end)) {
+                newPicks[k] = picks[(int) old];
+                continue;
+            }
+
+            // the previous pick and the average of the next bucket are the other corners of the triangle
+            long a = k == 0 ? start : newPicks[k - 1];
+            double ax = data.getDataX((int) (a - offset));
+            double ay = data.getDataY((int) (a - offset));
+            long avgStart = Math.max((bucket + 1) * bucketWidth, start + 1);
+            long avgEnd = Math.min((bucket + 2) * bucketWidth, end - 1);
+            double avgX = 0, avgY = 0;
+            if (avgStart >= avgEnd) { // last bucket: use the last point
+                avgStart = end - 1;
+                avgEnd = end;
+            }
+            for (long i = avgStart; i < avgEnd; i++) {
+                avgX += data.getDataX((int) (i - offset));
+                avgY += data.getDataY((int) (i - offset));
+            }
+            avgX /= avgEnd - avgStart;
+            avgY /= avgEnd - avgStart;
+
+            long rangeStart = Math.max(bucket * bucketWidth, start + 1);
+            long rangeEnd = Math.min((bucket + 1) * bucketWidth, end - 1);
+            double maxArea = -1;
+            long next = rangeStart;
+            for (long i = rangeStart; i < rangeEnd; i++) {
+                int index = (int) (i - offset);
+                // twice the triangle area; only used for comparison
+                double area = Math.abs((ax - avgX) * (data.getDataY(index) - ay)
+                        - (ax - data.getDataX(index)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            newPicks[k] = next;
+        }
+
+        long[] swap = picks;
+        picks = newPicks;
+        newPicks = swap;
+        firstBucket = first;
+        numBuckets = count;
+    }
+
+    /***
+     * Check whether a bucket and the one after it were whole both in the range
+     * last sampled and in [start, end), so the bucket's points and the average
+     * of the next one haven't changed.
+     */
+    private boolean isSettled(long bucket, long start, long end) {
+        long bucketStart = bucket * bucketWidth;
+        long nextEnd = (bucket + 2) * bucketWidth;
+        return bucketStart > Math.max(start, sampledFrom) && nextEnd < Math.min(end, sampledTo);
+    }
+
+    /***
+     * Count the buckets covering the points strictly between start and end - 1.
+     */
+    private int countBuckets(long start, long end) {
+        if (end - start <= 2) {
+            return 0;
+        }
+        return (int) ((end - 2) / bucketWidth - (start + 1) / bucketWidth + 1);
+    }
+}
@@ -0,0 +1,108 @@
+package Plot;
+
+import java.util.List;
+
+/***
+ * Offscreen layer holding the datasets of a plot that haven't changed since
+ * the last frame. Each frame the layer is copied to the window and only the
+ * datasets that changed are drawn on top, so a plot with one animated series
+ * and many static ones costs roughly one image copy plus the animated series.
+ *
+ * Only a leading run of unchanged datasets is cached so datasets are still
+ * drawn in order. The whole layer is redrawn when the view changes or when a
+ * dataset in that run changes, and re-created when the plot is drawn with a
+ * different size or kind of renderer (say, exported after being shown).
+ */
+class LayerCache {
+    private Renderer layer;
+    private Class<?> layerCreator; // kind of renderer that created the layer; only it can draw the layer
+    private int layerCount; // number of leading datasets drawn into the layer
+    private ScreenTransform layerView; // view the layer was drawn with
+
+    // state of the datasets as of the last frame
+    private ScreenTransform lastView;
+    private PlotData[] lastDatasets = new PlotData[0];
+    private int[] lastVersions = new int[0];
+    private int[] lastStyleVersions = new int[0];
+
+    /***
+     * Draw the datasets of p, re-using the layer where possible. The datasets
+     * must already be rescaled to the current view.
+     *
+     * @param window   the renderer to draw with
+     * @param p        the plot the datasets belong to
+     * @param datasets the datasets to draw, in order
+     */
+    void draw(Renderer window, Plot p, List<PlotData> datasets) {
+        int n = datasets.size();
+        ScreenTransform view = p.getView();
+        boolean viewStable = view == lastView;
+        lastView = view;
+
+        int stable = viewStable ? countUnchanged(datasets) : 0;
+        remember(datasets);
+
+        if (stable == 0) {
+            layerCount = 0;
+            drawRange(window, view, datasets, 0, n);
+            return;
+        }
+
+        if (layer == null || layerCreator != window.getClass() || layer.getWidth() != window.getWidth()
+                || layer.getHeight() != window.getHeight()) {
+            if (layer != null)
+                layer.dispose();
+            layer = window.createLayer(window.getWidth(), window.getHeight());
+            layerCreator = window.getClass();
+            layerCount = 0;
+        }
+        if (layerCount != stable || layerView != lastView) {
+            layer.beginDraw();
+            layer.clear();
+            drawRange(layer, view, datasets, 0, stable);
+            layer.endDraw();
+            layerCount = stable;
+            layerView = lastView;
+        }
+
+        window.drawLayer(layer, 0, 0);
+        drawRange(window, view, datasets, stable, n);
+    }
+
+    /***
+     * Count how many leading datasets are the same, with the same data and
+     * style, as last frame.
+     */
+    private int countUnchanged(List<PlotData> datasets) {
+        int n = Math.min(datasets.size(), lastDatasets.length);
+        for (int i = 0; i < n; i++) {
+            PlotData dataset = datasets.get(i);
+            if (dataset != lastDatasets[i] || dataset.getVersion() != lastVersions[i]
+                    || dataset.getStyleVersion() != lastStyleVersions[i]) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    private void remember(List<PlotData> datasets) {
+        int n = datasets.size();
+        if (lastDatasets.length != n) {
+            lastDatasets = new PlotData[n];
+            lastVersions = new int[n];
+            lastStyleVersions = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            PlotData dataset = datasets.get(i);
+            lastDatasets[i] = dataset;
+            lastVersions[i] = dataset.getVersion();
+            lastStyleVersions[i] = dataset.getStyleVersion();
+        }
+    }
+
+    private static void drawRange(Renderer g, ScreenTransform view, List<PlotData> datasets, int from, int to) {
+        for (int i = from; i < to; i++) {
+            datasets.get(i).drawSelf(g, view);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package Plot;
+
+import java.util.Arrays;
+
+/***
+ * Reduces a polyline in screen coordinates to at most four vertices per pixel
+ * column (M4 decimation): for every run of consecutive points that land in the
+ * same column it keeps the first, min y, max y and last points, in their
+ * original order. Drawing the reduced polyline lights the same pixels as
+ * drawing every segment, so line cost scales with plot width instead of with
+ * the number of points.
+ *
+ * Points left or right of the plot are grouped into one column on each side;
+ * their first and last points are kept so segments entering and leaving the
+ * plot are still drawn.
+ */
+class M4Decimator {
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private int size;
+
+    /***
+     * Decimate the screen coordinates of data, replacing the previous result.
+     *
+     * @param data   the dataset, already rescaled
+     * @param leftX  screen x of the left edge of the plot
+     * @param rightX screen x of the right edge of the plot
+     */
+    void decimate(PlotData data, float leftX, float rightX) {
+        size = 0;
+        int n = data.getNumDrawn();
+        if (n == 0)
+            return;
+
+        int first = data.getDrawnIndex(0);
+        int last = first;
+        int minIdx = first, maxIdx = first;
+        float minY = data.getDisplayY(first), maxY = minY;
+        float column = columnOf(data.getDisplayX(first), leftX, rightX);
+
+        for (int k = 1; k < n; k++) {
+            int i = data.getDrawnIndex(k);
+            float col = columnOf(data.getDisplayX(i), leftX, rightX);
+            float y = data.getDisplayY(i);
+            if (col != column) {
+                emitRun(data, first, minIdx, maxIdx, last);
+                first = minIdx = maxIdx = i;
+                minY = maxY = y;
+                column = col;
+            } else if (y < minY) {
+                minIdx = i;
+                minY = y;
+            } else if (y > maxY) {
+                maxIdx = i;
+                maxY = y;
+            }
+            last = i;
+        }
+        emitRun(data, first, minIdx, maxIdx, last);
+    }
+
+    int size() {
+        return size;
+    }
+
+    float getX(int i) {
+        return xs[i];
+    }
+
+    float getY(int i) {
+        return ys[i];
+    }
+
+    private static float columnOf(float screenX, float leftX, float rightX) {
+        return Math.max(leftX - 1, Math.min(rightX + 1, screenX));
+    }
+
+    /***
+     * Append the first, min, max and last points of one run, in index order and
+     * without repeats.
+     */
+    private void emitRun(PlotData data, int first, int minIdx, int maxIdx, int last) {
+        int lo = Math.min(minIdx, maxIdx);
+        int hi = Math.max(minIdx, maxIdx);
+
+        emit(data, first);
+        if (lo != first)
+            emit(data, lo);
+        if (hi != lo)
+            emit(data, hi);
+        if (last != hi)
+            emit(data, last);
+    }
+
+    private void emit(PlotData data, int i) {
+        if (size == xs.length) {
+            int newCapacity = Math.max(16, size * 2);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+        }
+        xs[size] = data.getDisplayX(i);
+        ys[size] = data.getDisplayY(i);
+        size++;
+    }
+}
@@ -0,0 +1,87 @@
+package Plot;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/***
+ * Read-only column of doubles stored in a memory-mapped file. Values live
+ * off-heap and are paged in by the operating system as they are read.
+ *
+ * A single mapping is limited to 2GB, so the column is split into chunks of
+ * CHUNK_SIZE values, each with its own mapping.
+ */
+class MappedDoubleColumn extends Column {
+    private static final int CHUNK_SHIFT = 27; // 2^27 doubles = 1GB per mapping
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final DoubleBuffer[] chunks;
+    private final int size;
+
+    /***
+     * Map count little-endian doubles starting at byte offset position of channel.
+     *
+     * @param channel  open channel of the file to map
+     * @param position byte offset of the first value
+     * @param count    number of values in the column
+     * @throws IOException if the file can't be mapped
+     */
+    MappedDoubleColumn(FileChannel channel, long position, int count) throws IOException {
+        int numChunks = (count + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        this.chunks = new DoubleBuffer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            long chunkStart = (long) i << CHUNK_SHIFT;
+            long chunkLength = Math.min(CHUNK_SIZE, count - chunkStart);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + chunkStart * Double.BYTES,
+                    chunkLength * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        this.size = count;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int capacity() {
+        return size;
+    }
+
+    @Override
+    boolean isBounded() {
+        return false;
+    }
+
+    @Override
+    boolean isFull() {
+        return true;
+    }
+
+    @Override
+    boolean isOffHeap() {
+        return true;
+    }
+
+    @Override
+    double get(int i) {
+        return chunks[i >>> CHUNK_SHIFT].get(i & CHUNK_MASK);
+    }
+
+    /***
+     * Mapped columns are never modified, so copies can share the same mapping.
+     */
+    @Override
+    Column copy() {
+        return this;
+    }
+
+    @Override
+    void copyTo(double[] dest) {
+        for (int i = 0; i < size; i++) {
+            dest[i] = get(i);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package Plot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * Read-only PlotData whose x and y columns are memory-mapped from a file instead
+ * of being loaded onto the heap. Opening a file only reads its header, so it
+ * takes the same time regardless of how many points the file holds; data pages
+ * are read in by the operating system as they are drawn.
+ *
+ * File layout (all values little-endian):
+ *
+ * <pre>
+ * byte   magic[4] ("PLTD")
+ * int    version
+ * long   number of points n
+ * double minX, maxX, minY, maxY
+ * int    flags (bit 0: x values are sorted)
+ * (padding up to HEADER_SIZE bytes)
+ * double x[n]
+ * double y[n]
+ * </pre>
+ */
+public class MappedPlotData extends PlotData {
+    private static final byte[] MAGIC = "PLTD".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int FLAG_SORTED_X = 1;
+
+    /***
+     * Open a file written by MappedPlotData.write(...) for plotting.
+     *
+     * @param file the file to map
+     * @throws IOException if the file can't be read or isn't a PlotData file
+     */
+    public MappedPlotData(Path file) throws IOException {
+        this(map(file));
+    }
+
+    private MappedPlotData(Mapping mapping) {
+        super(mapping.x, mapping.y, mapping.header.getDouble(16), mapping.header.getDouble(24),
+                mapping.header.getDouble(32), mapping.header.getDouble(40),
+                (mapping.header.getInt(48) & FLAG_SORTED_X) != 0);
+    }
+
+    /***
+     * Header and mapped columns of a file, read through one channel.
+     */
+    private static final class Mapping {
+        final ByteBuffer header;
+        final Column x, y;
+
+        Mapping(ByteBuffer header, Column x, Column y) {
+            this.header = header;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /***
+     * Write the points of data to file in the format read by MappedPlotData.
+     *
+     * @param file the file to write (replaced if it already exists)
+     * @param data the data to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, PlotData data) throws IOException {
+        int n = data.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).putLong(n);
+            header.putDouble(data.getDataMinX()).putDouble(data.getDataMaxX());
+            header.putDouble(data.getDataMinY()).putDouble(data.getDataMaxY());
+            header.putInt(data.isSortedX() ? FLAG_SORTED_X : 0);
+            header.clear();
+            writeFully(channel, header);
+            writeColumns(channel, data);
+        }
+    }
+
+    /***
+     * Write the x values of data and then its y values, as little-endian
+     * doubles, at the current position of channel.
+     *
+     * @param channel the channel to write to
+     * @param data    the data to write
+     * @throws IOException if the channel can't be written
+     */
+    static void writeColumns(FileChannel channel, PlotData data) throws IOException {
+        int n = data.size();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.putDouble(data.getDataX(i));
+        }
+        for (int i = 0; i < n; i++) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.putDouble(data.getDataY(i));
+        }
+        flush(channel, buffer);
+    }
+
+    /***
+     * Write the points (x[i], y[i]) to file in the format read by MappedPlotData.
+     *
+     * @param file the file to write (replaced if it already exists)
+     * @param x    x coordinates
+     * @param y    y coordinates
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, double[] x, double[] y) throws IOException {
+        write(file, new PlotData(x, y));
+    }
+
+    /***
+     * Read and check the header of file and map its columns, opening the file
+     * only once.
+     */
+    private static Mapping map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException(file + " is too short to be a PlotData file");
+                }
+            }
+
+            if (!hasMagic(header, MAGIC)) {
+                throw new IOException(file + " is not a PlotData file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + header.getInt(4));
+            }
+            long n = header.getLong(8);
+            if (n < 0 || n > Integer.MAX_VALUE) {
+                throw new IOException(file + " has invalid point count " + n);
+            }
+            if (channel.size() < HEADER_SIZE + 2 * n * Double.BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+
+            // mappings stay valid after the channel is closed
+            Column x = new MappedDoubleColumn(channel, HEADER_SIZE, (int) n);
+            Column y = new MappedDoubleColumn(channel, HEADER_SIZE + n * Double.BYTES, (int) n);
+            return new Mapping(header, x, y);
+        }
+    }
+
+    /***
+     * Check whether header starts with the bytes of magic.
+     *
+     * @param header the start of a file
+     * @param magic  the bytes the file should start with
+     * @return true if they match
+     */
+    static boolean hasMagic(ByteBuffer header, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (header.get(i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Plot;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/***
+ * Fork/join versions of the loops PlotData runs over every point: converting
+ * to screen coordinates and finding the data bounds. Datasets are split into
+ * chunks that are processed on the common fork/join pool, so for large
+ * datasets zooming and loading take time inversely proportional to the number
+ * of cores.
+ *
+ * Only worth it for large datasets; PlotData uses the serial loops below
+ * THRESHOLD points.
+ */
+class ParallelScan {
+    static final int THRESHOLD = 1 << 18; // fewer points than this are faster to scan on one thread
+    private static final int CHUNK_SIZE = 1 << 15; // points handled by one task without splitting further
+
+    /***
+     * Fill px[i] and py[i] with the screen coordinates of point i for every i in
+     * [from, to).
+     */
+    static void toScreen(Column x, Column y, ScreenTransform transform, float[] px, float[] py,
+            int from, int to) {
+        ForkJoinPool.commonPool().invoke(new ToScreen(x, y, transform, px, py, from, to));
+    }
+
+    /***
+     * Find the bounds of the first n points and the number of points whose x is
+     * smaller than the x of the point before them.
+     */
+    static Bounds bounds(Column x, Column y, int n) {
+        return ForkJoinPool.commonPool().invoke(new FindBounds(x, y, 0, n));
+    }
+
+    /***
+     * Result of bounds(...). A coordinate with no (non-NaN) values has min +Infinity
+     * and max -Infinity.
+     */
+    static class Bounds {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int xDescents;
+
+        private void merge(Bounds other) {
+            minX = Math.min(minX, other.minX);
+            maxX = Math.max(maxX, other.maxX);
+            minY = Math.min(minY, other.minY);
+            maxY = Math.max(maxY, other.maxY);
+            xDescents += other.xDescents;
+        }
+    }
+
+    private static class ToScreen extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Column x, y;
+        private final ScreenTransform transform;
+        private final float[] px, py;
+        private final int from, to;
+
+        ToScreen(Column x, Column y, ScreenTransform transform, float[] px, float[] py, int from,
+                int to) {
+            this.x = x;
+            this.y = y;
+            this.transform = transform;
+            this.px = px;
+            this.py = py;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    px[i] = transform.screenX(x.get(i));
+                    py[i] = transform.screenY(y.get(i));
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ToScreen(x, y, transform, px, py, from, mid),
+                    new ToScreen(x, y, transform, px, py, mid, to));
+        }
+    }
+
+    private static class FindBounds extends RecursiveTask<Bounds> {
+        private static final long serialVersionUID = 1L;
+
+        private final Column x, y;
+        private final int from, to;
+
+        FindBounds(Column x, Column y, int from, int to) {
+            this.x = x;
+            this.y = y;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Bounds compute() {
+            if (to - from > CHUNK_SIZE) {
+                int mid = (from + to) >>> 1;
+                FindBounds right = new FindBounds(x, y, mid, to);
+                right.fork();
+                Bounds bounds = new FindBounds(x, y, from, mid).compute();
+                bounds.merge(right.join());
+                return bounds;
+            }
+
+            Bounds bounds = new Bounds();
+            // start one point early so descents across chunk boundaries are counted
+            double prevX = from > 0 ? x.get(from - 1) : Double.NaN;
+            for (int i = from; i < to; i++) {
+                double vx = x.get(i);
+                double vy = y.get(i);
+                if (vx < bounds.minX)
+                    bounds.minX = vx;
+                if (vx > bounds.maxX)
+                    bounds.maxX = vx;
+                if (vy < bounds.minY)
+                    bounds.minY = vy;
+                if (vy > bounds.maxY)
+                    bounds.maxY = vy;
+                if (vx < prevX)
+                    bounds.xDescents++;
+                prevX = vx;
+            }
+            return bounds;
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package Plot;
 
 import processing.core.PApplet;
-import processing.core.PConstants;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -19,14 +19,19 @@ public abstract class Plot {
     protected int height;
 
     public enum Setting {
-        show_axes, freeze_y_scale, freeze_x_scale, show_border
+        show_axes, freeze_y_scale, freeze_x_scale, show_border, cache_layers, prepare_in_background
     }
 
     protected HashMap<Setting, Boolean> settings;
     protected Axes axes;
+    private LayerCache layerCache = new LayerCache(); // used when cache_layers is set
+    private RenderPipeline pipeline = new RenderPipeline(); // used when prepare_in_background is set
+    private ScreenTransform view; // last result of getView()
+    private ProcessingRenderer windowRenderer; // for drawing into the last window passed to draw(PApplet)
 
     // ---- DATA ----
     protected ArrayList<PlotData> datasets;
+    private ArrayList<PlotData> drawnDatasets = new ArrayList<>(); // published version of each dataset this frame
     protected double dataMinX;
     protected double dataMinY;
     protected double dataMaxX;
@@ -85,6 +90,16 @@ public abstract class Plot {
         settings.put(setting, value);
     }
 
+    /**
+     * Waits until the datasets being prepared in the background (when
+     * prepare_in_background is set) are ready, so the next draw shows them.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitPrepared() throws InterruptedException {
+        pipeline.awaitPrepared();
+    }
+
     public void setYDataRange(int min, int max) {
         this.dataMinY = min;
         this.dataMaxY = max;
@@ -96,18 +111,34 @@ public abstract class Plot {
      * @param window The PApplet window on which to draw the plot.
      */
     public void draw(PApplet window) {
+        if (windowRenderer == null || windowRenderer.getWindow() != window
+                || windowRenderer.getGraphics() != window.g) {
+            windowRenderer = new ProcessingRenderer(window);
+        }
+        draw(windowRenderer);
+    }
+
+    /**
+     * Draws the plot with the given renderer.
+     *
+     * @param window The renderer to draw the plot with.
+     */
+    public void draw(Renderer window) {
+        drawnDatasets.clear();
         for (PlotData dataset : datasets) {
-            if (dataset.isDirty()) {
-                updateDataBoundsWith(dataset);
-                dataset.setClean();
+            PlotData drawn = dataset.getPublished();
+            if (drawn.isDirty()) {
+                updateDataBoundsWith(drawn);
+                drawn.setClean();
             }
+            drawnDatasets.add(drawn);
         }
 
         drawAxes(window);
         drawDataPoints(window);
 
-        window.fill(0); // kludgy hack to insure axes display in black always?
-        window.stroke(0);
+        window.fill(PlotData.BLACK); // kludgy hack to insure axes display in black always?
+        window.stroke(PlotData.BLACK);
     }
 
     public boolean containsMouse(PApplet window) {
@@ -229,8 +260,9 @@ public abstract class Plot {
         dataMaxY = 0;
 
         for (PlotData dataset : datasets) {
-            updateDataBoundsWith(dataset);
-            dataset.setClean();
+            PlotData drawn = dataset.getPublished();
+            updateDataBoundsWith(drawn);
+            drawn.setClean();
         }
 
         needScaling = false;
@@ -300,14 +332,27 @@ public abstract class Plot {
      * Draws the data points on the plot.
      * If the plot is frozen, it removes data points that are out of range.
      * 
-     * @param window The PApplet window on which the plot is drawn.
+     * @param window The renderer the plot is drawn with.
      */
-    protected void drawDataPoints(PApplet window) {
+    protected void drawDataPoints(Renderer window) {
         if (needScaling)
             reScaleData(window);
 
         // TODO: remove data that's out of range if plot frozen?
-        for (PlotData dataset : datasets) {
+        if (settings.containsKey(Setting.prepare_in_background)) {
+            pipeline.draw(window, this, drawnDatasets);
+            return;
+        }
+
+        if (settings.containsKey(Setting.cache_layers)) {
+            for (PlotData dataset : drawnDatasets) {
+                rescaleDataSet(dataset);
+            }
+            layerCache.draw(window, this, drawnDatasets);
+            return;
+        }
+
+        for (PlotData dataset : drawnDatasets) {
             plotDataSet(window, dataset);
         }
     }
@@ -315,14 +360,39 @@ public abstract class Plot {
     /**
      * Plots the given dataset on the specified window.
      *
-     * @param window  the PApplet window on which to plot the dataset
+     * @param window  the renderer to plot the dataset with
      * @param dataset the PlotData object representing the dataset to be plotted
      */
-    protected void plotDataSet(PApplet window, PlotData dataset) {
+    protected void plotDataSet(Renderer window, PlotData dataset) {
+        rescaleDataSet(dataset);
+        dataset.drawSelf(window, getView());
+    }
+
+    /**
+     * Recalculates the screen coordinates of the given dataset for the current
+     * view.
+     *
+     * @param dataset the PlotData object to rescale
+     */
+    protected void rescaleDataSet(PlotData dataset) {
         dataset.rescale(cornerX, cornerX + width, cornerY + height, cornerY,
                 getDataViewMinX(), getDataViewMaxX(), getDataViewMinY(), getDataViewMaxY());
+    }
 
-        dataset.drawSelf(window, this);
+    /***
+     * Get the current position and data view of the plot as an immutable value.
+     * The same object is returned until either changes, so callers can tell
+     * whether the view changed by comparing references.
+     *
+     * @return the current view
+     */
+    ScreenTransform getView() {
+        if (view == null || !view.matches(getLeftX(), getRightX(), getBottomY(), getTopY(), getDataViewMinX(),
+                getDataViewMaxX(), getDataViewMinY(), getDataViewMaxY())) {
+            view = new ScreenTransform(getLeftX(), getRightX(), getBottomY(), getTopY(), getDataViewMinX(),
+                    getDataViewMaxX(), getDataViewMinY(), getDataViewMaxY());
+        }
+        return view;
     }
 
     /**
@@ -340,14 +410,6 @@ public abstract class Plot {
         return true;
     }
 
-    // ===== constants for clipping algorithm ========
-    private static final int INSIDE = 0; // 0000
-    private static final int LEFT = 1; // 0001
-    private static final int RIGHT = 2; // 0010
-    private static final int BOTTOM = 4; // 0100
-    private static final int TOP = 8; // 1000
-    // ===== constants for clipping algorithm ========
-
     /**
      * Clips a line segment defined by two points (x1, y1) and (x2, y2) to fit
      * within the current viewing window.
@@ -363,97 +425,33 @@ public abstract class Plot {
      *         the viewing window.
      */
     public int[] clipLine(int x1, int y1, int x2, int y2) {
-        int windowHeight = (int) (Math.abs(this.getBottomY() - this.getTopY()));
-        int windowWidth = (int) (Math.abs(this.getRightX() - this.getLeftX()));
-
-        int code1 = computeCode(x1, y1, windowWidth, windowHeight);
-        int code2 = computeCode(x2, y2, windowWidth, windowHeight);
-        boolean accept = false;
-
-        while (true) {
-            if ((code1 == 0) && (code2 == 0)) {
-                accept = true;
-                break;
-            } else if ((code1 & code2) != 0) {
-                break;
-            } else {
-                int codeOut;
-                int x, y;
-
-                if (code1 != 0) {
-                    codeOut = code1;
-                } else {
-                    codeOut = code2;
-                }
-
-                if ((codeOut & TOP) != 0) {
-                    x = (int) (x1 + (x2 - x1) * (this.getTopY() - y1) / (y2 - y1));
-                    y = (int) this.getTopY();
-                } else if ((codeOut & BOTTOM) != 0) {
-                    x = (int) (x1 + (x2 - x1) * (this.getTopY() + windowHeight - y1) / (y2 - y1));
-                    y = (int) (this.getTopY() + windowHeight);
-                } else if ((codeOut & RIGHT) != 0) {
-                    y = (int) (y1 + (y2 - y1) * (this.getLeftX() + windowWidth - x1) / (x2 - x1));
-                    x = (int) (this.getLeftX() + windowWidth);
-                } else if ((codeOut & LEFT) != 0) {
-                    y = (int) (y1 + (y2 - y1) * (this.getLeftX() - x1) / (x2 - x1));
-                    x = (int) this.getLeftX();
-                } else {
-                    x = 0;
-                    y = 0;
-                }
-
-                if (codeOut == code1) {
-                    x1 = x;
-                    y1 = y;
-                    code1 = computeCode(x1, y1, windowWidth, windowHeight);
-                } else {
-                    x2 = x;
-                    y2 = y;
-                    code2 = computeCode(x2, y2, windowWidth, windowHeight);
-                }
-            }
-        }
-
-        if (accept) {
-            return new int[] { x1, y1, x2, y2 };
-        } else {
-            // System.err.println("Tried to clip line entirely outside viewing window");
-            return null;
+        int[] clipped = new int[4];
+        if (clipLine(x1, y1, x2, y2, clipped)) {
+            return clipped;
         }
+        // System.err.println("Tried to clip line entirely outside viewing window");
+        return null;
     }
 
     /**
-     * Computes the code for a given point (x, y) relative to the plot window.
-     * The code is a combination of INSIDE, LEFT, RIGHT, TOP, and BOTTOM flags,
-     * indicating the position of the point with respect to the plot window
-     * boundaries.
+     * Clips a line segment like clipLine(x1, y1, x2, y2), but writes the result
+     * into out instead of allocating a new array, so it can be called for every
+     * segment of a large dataset.
      *
-     * @param x            the x-coordinate of the point
-     * @param y            the y-coordinate of the point
-     * @param windowWidth  the width of the plot window
-     * @param windowHeight the height of the plot window
-     * @return the computed code
+     * @param x1  The x-coordinate of the first point of the line segment.
+     * @param y1  The y-coordinate of the first point of the line segment.
+     * @param x2  The x-coordinate of the second point of the line segment.
+     * @param y2  The y-coordinate of the second point of the line segment.
+     * @param out array of length 4 to receive the clipped coordinates [x1, y1,
+     *            x2, y2]
+     * @return true if some of the line is inside the viewing window, false if it
+     *         is entirely outside (out is left unchanged).
      */
-    private int computeCode(int x, int y, int windowWidth, int windowHeight) {
-        int code = INSIDE;
-
-        if (x < this.getLeftX()) {
-            code |= LEFT;
-        } else if (x > this.getLeftX() + windowWidth) {
-            code |= RIGHT;
-        }
-
-        if (y < this.getTopY()) {
-            code |= TOP;
-        } else if (y > this.getTopY() + windowHeight) {
-            code |= BOTTOM;
-        }
-
-        return code;
+    public boolean clipLine(int x1, int y1, int x2, int y2, int[] out) {
+        return ScreenTransform.clipLine(getLeftX(), getTopY(), getRightX(), getBottomY(), x1, y1, x2, y2, out);
     }
 
-    protected void reScaleData(PApplet window) {
+    protected void reScaleData(Renderer window) {
         System.err.println("Warning: call to reScaleData is currently unimplemented");
         this.needScaling = false;
     }
@@ -468,14 +466,14 @@ public abstract class Plot {
     /**
      * Draws the axes on the plot.
      * 
-     * @param window The PApplet window to draw on.
+     * @param window The renderer to draw with.
      */
-    protected void drawAxes(PApplet window) {
+    protected void drawAxes(Renderer window) {
         if (settings.containsKey(Setting.show_axes)) {
             int axisX = (int) getScreenXFor(0);
             int axisY = (int) getScreenYFor(0);
             window.strokeWeight(AXIS_STROKE_WEIGHT);
-            window.stroke(0); // TODO: only draw axes if in bounds for plot?!
+            window.stroke(PlotData.BLACK); // TODO: only draw axes if in bounds for plot?!
             window.line(cornerX, axisY, cornerX + width, axisY);
             window.line(axisX, cornerY, axisX, cornerY + height);
             window.strokeWeight(1);
@@ -519,6 +517,44 @@ public abstract class Plot {
         this.datasets.remove(dataSetId);
     }
 
+    /**
+     * Overwrites the y values of an existing dataset in place, keeping its style
+     * and index. Use this instead of removing and re-plotting a dataset to
+     * animate it.
+     *
+     * @param dataSetId the ID of the dataset to update
+     * @param yData     the new y values, one per existing data point
+     * @return the updated PlotData object, or null if dataSetId is invalid
+     */
+    public PlotData updatePlot(int dataSetId, double[] yData) {
+        if (dataSetId < 0 || dataSetId >= this.datasets.size()) {
+            System.err.println("Error: dataSet out of bounds");
+            return null;
+        }
+        PlotData data = this.datasets.get(dataSetId);
+        data.update(yData);
+        return data;
+    }
+
+    /**
+     * Replaces the x and y values of an existing dataset in place, keeping its
+     * style and index.
+     *
+     * @param dataSetId the ID of the dataset to update
+     * @param xData     the new x values
+     * @param yData     the new y values
+     * @return the updated PlotData object, or null if dataSetId is invalid
+     */
+    public PlotData updatePlot(int dataSetId, double[] xData, double[] yData) {
+        if (dataSetId < 0 || dataSetId >= this.datasets.size()) {
+            System.err.println("Error: dataSet out of bounds");
+            return null;
+        }
+        PlotData data = this.datasets.get(dataSetId);
+        data.update(xData, yData);
+        return data;
+    }
+
     public void setYDataRangeMin(double dataYMin) {
         this.dataMinY = dataYMin;
     }
@@ -580,16 +616,94 @@ public abstract class Plot {
         protected int xAxisTextSize = 10;
         protected int yAxisTextSize = 10;
 
+        // tick positions, labels and label offsets; re-calculated only when the view,
+        // size, text settings or kind of renderer (which measures the labels) change
+        private ScreenTransform ticksFor;
+        private Class<?> ticksMeasuredBy;
+        private int ticksXTextSize, ticksYTextSize;
+        private float ticksXTextAdjust, ticksYTextAdjust;
+        private int numXTicks, numYTicks;
+        private float[] xTickScreen = new float[0], yTickScreen = new float[0];
+        private float[] xLabelScreen = new float[0];
+        private String[] xLabels = new String[0], yLabels = new String[0];
+
+        // grid and labels drawn offscreen when the plot caches layers
+        private Renderer layer;
+        private Class<?> layerCreator; // kind of renderer that created the layer; only it can draw the layer
+        private ScreenTransform layerFor;
+
         /**
-         * Draws the plot on the given PApplet window.
+         * Draws the grid and tick labels with the given renderer.
          * 
          * @param plot   The Plot object containing the data and settings for the plot.
-         * @param window The PApplet window on which the plot will be drawn.
+         * @param window The renderer the plot is drawn with.
          */
-        protected void draw(Plot plot, PApplet window) {
+        protected void draw(Plot plot, Renderer window) {
             if (getDomain() == 0 || getRange() == 0)
                 return;
 
+            if (!ticksCurrent(plot, window))
+                calcTicks(plot, window);
+
+            if (!settings.containsKey(Setting.cache_layers)) {
+                drawTicks(plot, window);
+                return;
+            }
+
+            if (layer == null || layerCreator != window.getClass() || layer.getWidth() != window.getWidth()
+                    || layer.getHeight() != window.getHeight()) {
+                if (layer != null)
+                    layer.dispose();
+                layer = window.createLayer(window.getWidth(), window.getHeight());
+                layerCreator = window.getClass();
+                layerFor = null;
+            }
+            if (layerFor != ticksFor) {
+                layer.beginDraw();
+                layer.clear();
+                drawTicks(plot, layer);
+                layer.endDraw();
+                layerFor = ticksFor;
+            }
+            window.drawLayer(layer, 0, 0);
+        }
+
+        /**
+         * Copies the axis text settings of another plot's axes.
+         *
+         * @param other The axes to copy the settings from.
+         */
+        protected void copyStyleFrom(Axes other) {
+            this.xAxisTextSize = other.xAxisTextSize;
+            this.yAxisTextSize = other.yAxisTextSize;
+            this.xAxisTextYAdjust = other.xAxisTextYAdjust;
+            this.yAxisTextXAdjust = other.yAxisTextXAdjust;
+        }
+
+        /**
+         * Checks whether the tick positions and labels were calculated for the
+         * current view, size and text settings, with the same kind of renderer.
+         *
+         * @param plot   The Plot object the axes belong to.
+         * @param window The renderer the plot is drawn with.
+         * @return true if the ticks can be re-used
+         */
+        private boolean ticksCurrent(Plot plot, Renderer window) {
+            return ticksFor != null && ticksMeasuredBy == window.getClass()
+                    && ticksFor.matches(cornerX, cornerX + width, cornerY + height, cornerY, plot.getDataViewMinX(),
+                            plot.getDataViewMaxX(), plot.getDataViewMinY(), plot.getDataViewMaxY())
+                    && ticksXTextSize == xAxisTextSize && ticksYTextSize == yAxisTextSize
+                    && ticksXTextAdjust == xAxisTextYAdjust && ticksYTextAdjust == yAxisTextXAdjust;
+        }
+
+        /**
+         * Calculates the screen positions and labels of the major grid lines, and
+         * the offsets that center the x labels under their lines.
+         *
+         * @param plot   The Plot object containing the data and settings for the plot.
+         * @param window The renderer used to measure the labels.
+         */
+        private void calcTicks(Plot plot, Renderer window) {
             numXLines = (width / MIN_PIXEL_SPACING);
             numYLines = (height / MIN_PIXEL_SPACING);
 
@@ -601,29 +715,34 @@ public abstract class Plot {
             this.yScaleSigFigs = Math.max(0, -(int) yScaleInfo[1]); // no decimals might be 10^(2). 2 --> -2, but max to
                                                                     // 0
 
-            // --------------- draw major x grid -----------------------------------------
+            // --------------- major x grid -----------------------------------------
             double startX = MathUtils.ceilToNearest(plot.getDataViewMinX(), xScale);
+            String xFormat = "%." + this.xScaleSigFigs + "f";
+            window.textSize(xAxisTextSize);
 
             double val = startX;
             double x = plot.getScreenXFor(val);
             int i = 0;
+            numXTicks = 0;
             while (x <= cornerX + width) {
-                window.line((float) x, cornerY, (float) x, cornerY + height);
-                window.textSize(xAxisTextSize);
-                window.textAlign(window.CENTER, window.CENTER);
-                window.fill(0);
-                window.stroke(0);
-                String value = String.format("%." + this.xScaleSigFigs + "f", val);
-                window.textAlign(PConstants.LEFT);
-                window.text(value, (float) x - getCenterShiftAmount(window, value),
-                        plot.getBottomY() + xAxisTextSize + plot.getXAxisTextYAdjust());
+                if (numXTicks == xTickScreen.length) {
+                    int newLength = Math.max(8, 2 * numXTicks);
+                    xTickScreen = Arrays.copyOf(xTickScreen, newLength);
+                    xLabelScreen = Arrays.copyOf(xLabelScreen, newLength);
+                    xLabels = Arrays.copyOf(xLabels, newLength);
+                }
+                String value = String.format(xFormat, val);
+                xTickScreen[numXTicks] = (float) x;
+                xLabelScreen[numXTicks] = (float) x - getCenterShiftAmount(window, value);
+                xLabels[numXTicks] = value;
+                numXTicks++;
 
                 i++;
                 val = startX + i * xScale;
                 x = plot.getScreenXFor(val);
             }
 
-            // -------------- draw minor grid -----------------------------------
+            // -------------- minor grid -----------------------------------
             /*
              * double xMinorScale = getMinorScale(xScale);
              * while (x >= cornerX) {
@@ -636,35 +755,72 @@ public abstract class Plot {
              * }
              */
 
+            // --------------- major y grid -----------------------------------------
             double startY = MathUtils.ceilToNearest(getDataViewMinY(), yScale);
+            String yFormat = "%." + this.yScaleSigFigs + "f";
             val = startY + yScale;
             double y = plot.getScreenYFor(val);
             i = 0;
+            numYTicks = 0;
             while (y >= cornerY) {
-                window.line(cornerX, (float) y, cornerX + width, (float) y);
-                window.textSize(yAxisTextSize);
-                window.textAlign(window.CENTER, window.CENTER);
-                window.fill(0);
-                window.stroke(0);
-
-                String value = String.format("%." + this.yScaleSigFigs + "f", val);
-                window.textAlign(PConstants.RIGHT, PConstants.CENTER);
-                window.text(value, plot.getLeftX() + plot.getYAxisTextXAdjust(), (float) y - yAxisTextSize * 0.1f);
+                if (numYTicks == yTickScreen.length) {
+                    int newLength = Math.max(8, 2 * numYTicks);
+                    yTickScreen = Arrays.copyOf(yTickScreen, newLength);
+                    yLabels = Arrays.copyOf(yLabels, newLength);
+                }
+                yTickScreen[numYTicks] = (float) y;
+                yLabels[numYTicks] = String.format(yFormat, val);
+                numYTicks++;
 
                 i++;
                 val = startY + i * yScale;
                 y = plot.getScreenYFor(val);
             }
+
+            ticksFor = new ScreenTransform(cornerX, cornerX + width, cornerY + height, cornerY,
+                    plot.getDataViewMinX(), plot.getDataViewMaxX(), plot.getDataViewMinY(), plot.getDataViewMaxY());
+            ticksMeasuredBy = window.getClass();
+            ticksXTextSize = xAxisTextSize;
+            ticksYTextSize = yAxisTextSize;
+            ticksXTextAdjust = xAxisTextYAdjust;
+            ticksYTextAdjust = yAxisTextXAdjust;
+        }
+
+        /**
+         * Draws the major grid lines and their labels from the calculated ticks.
+         *
+         * @param plot The Plot object containing the data and settings for the plot.
+         * @param g    The renderer to draw with.
+         */
+        private void drawTicks(Plot plot, Renderer g) {
+            g.fill(PlotData.BLACK);
+            g.stroke(PlotData.BLACK);
+
+            g.textSize(xAxisTextSize);
+            g.textAlign(Renderer.LEFT, Renderer.BASELINE);
+            float labelY = plot.getBottomY() + xAxisTextSize + plot.getXAxisTextYAdjust();
+            for (int i = 0; i < numXTicks; i++) {
+                g.line(xTickScreen[i], cornerY, xTickScreen[i], cornerY + height);
+                g.text(xLabels[i], xLabelScreen[i], labelY);
+            }
+
+            g.textSize(yAxisTextSize);
+            g.textAlign(Renderer.RIGHT, Renderer.CENTER);
+            float labelX = plot.getLeftX() + plot.getYAxisTextXAdjust();
+            for (int i = 0; i < numYTicks; i++) {
+                g.line(cornerX, yTickScreen[i], cornerX + width, yTickScreen[i]);
+                g.text(yLabels[i], labelX, yTickScreen[i] - yAxisTextSize * 0.1f);
+            }
         }
 
         /**
          * Calculates the amount of shift needed to center the text value horizontally.
          * 
-         * @param window The PApplet window where the text will be displayed.
+         * @param window The renderer the text will be displayed with.
          * @param value  The text value for which the center shift amount is calculated.
          * @return The amount of shift needed to center the text value horizontally.
          */
-        private float getCenterShiftAmount(PApplet window, String value) {
+        private float getCenterShiftAmount(Renderer window, String value) {
             if (value.startsWith("-"))
                 value = value + "-"; // add extra dummy character so leading "-" isn't counted
             // in shift amount
@@ -1,6 +1,7 @@
 package Plot;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.List;
 import processing.core.PApplet;
 import static Plot.PlotData.Style.*;
@@ -10,7 +11,7 @@ import static Plot.PlotData.Style.*;
  */
 public class PlotData {
     public static enum Style {
-        POINT, LINE, DASH
+        POINT, LINE, DASH, PIXEL, DENSITY
     }
 
     public static final int BLACK = 0xFF000000;
@@ -18,41 +19,75 @@ public class PlotData {
     public static final int BLUE = 0xFF0000FF;
     public static final int GREEN = 0xFF00FF00;
 
+    static final int STYLE_BYTES = 28; // size of the style written by writeStyle(...)
+
     // ------ STYLE -------
     private int strokeColor, fillColor;
     private float strokeWeight;
     private Style style;
     private int dashLength;
+    private boolean densityLogScale;
 
     // ------ DATA --------
-    private List<Double> x, y;
-    private List<Integer> pixelX, pixelY; // display coords (pre-calculated for speed
+    private Column x, y; // DoubleColumns unless read-only (see checkWritable())
+    private float[] pixelX, pixelY; // display coords (pre-calculated for speed
+    private int numPixels; // number of entries in pixelX/pixelY that are valid
+    private ScreenTransform transform; // view used by the last rescale
+    private LTTBSampler sampler; // picks the points to draw when downsampling is on
+    private M4Decimator lineVertices; // decimated screen coords for LINE style
+    private ScreenTransform lineVerticesFor; // transform lineVertices was built from
+    private DensityGrid densityGrid; // per-pixel counts for DENSITY style
     // TODO: re-factor this to be in Plot?
 
     private double minX, maxX, minY, maxY; // for raw values in x, y
+    private SlidingExtrema windowX, windowY; // exact bounds when dataset has a max size
+    private int xDescents; // number of points with smaller x than the point before (0 if sorted)
+    private int drawnFrom, drawnTo; // range of indices that can be in view
     private boolean dirty = false; // has data changed without updating pre-calculated values?
+    private int version; // incremented every time the data changes
+    private long numEvicted; // number of points ever removed from the front
+    private int numRewrites; // incremented when the data changes other than by adding or evicting points
+    private int screenVersion = -1; // data version the screen coords were calculated for
+    private int styleVersion; // incremented every time the way the data is drawn changes
+    private boolean copyOnWrite; // copy read-only columns onto the heap on the first write instead of refusing it
+    private volatile PlotData published; // copy drawn in place of this dataset, once published
 
+    /***
+     * Copy a dataset. The copy shares the data of toCopy until either of them
+     * changes it, so copying takes constant time and no extra memory.
+     *
+     * @param toCopy the dataset to copy
+     */
     public PlotData(PlotData toCopy) {
         this.strokeWeight = toCopy.strokeWeight;
         this.strokeColor = toCopy.strokeColor;
         this.fillColor = toCopy.fillColor;
         this.style = toCopy.style; // TODO: will this cause bugs?
-        this.x = new ArrayList<Double>();
-        for (Double val : toCopy.x) {
-            x.add(val);
-        }
-        this.y = new ArrayList<Double>();
-        for (Double val : toCopy.y) {
-            y.add(val);
+        this.dashLength = toCopy.dashLength;
+        this.densityLogScale = toCopy.densityLogScale;
+        this.copyOnWrite = toCopy.copyOnWrite;
+        if (toCopy.sampler != null) {
+            this.sampler = toCopy.sampler.copy();
         }
+        this.x = toCopy.x.copy();
+        this.y = toCopy.y.copy();
+        this.minX = toCopy.minX;
+        this.maxX = toCopy.maxX;
+        this.minY = toCopy.minY;
+        this.maxY = toCopy.maxY;
 
-        this.pixelX = new ArrayList<Integer>();
-        for (Integer val : toCopy.pixelX) {
-            pixelX.add(val);
-        }
-        this.pixelY = new ArrayList<Integer>();
-        for (Integer val : toCopy.pixelY) {
-            pixelY.add(val);
+        // screen coords are re-calculated from the transform until the copy's first rescale
+        this.pixelX = new float[0];
+        this.pixelY = new float[0];
+        this.numPixels = toCopy.numPixels;
+        this.transform = toCopy.transform;
+        this.xDescents = toCopy.xDescents;
+        this.numEvicted = toCopy.numEvicted;
+        this.numRewrites = toCopy.numRewrites;
+
+        if (toCopy.windowX != null) {
+            this.windowX = toCopy.windowX.copy();
+            this.windowY = toCopy.windowY.copy();
         }
     }
 
@@ -63,11 +98,48 @@ public class PlotData {
      * @param y list of y coordinates
      */
     public PlotData(List<Double> x, List<Double> y) {
+        this(toColumn(x), toColumn(y));
+    }
+
+    /***
+     * Create PlotData object from pre-made data arrays x and y. The values are
+     * copied into primitive storage without boxing.
+     *
+     * @param x array of x coordinates
+     * @param y array of y coordinates
+     */
+    public PlotData(double[] x, double[] y) {
+        this(new DoubleColumn(x), new DoubleColumn(y));
+    }
+
+    /***
+     * Create new PlotData object with no data (can be added later with .plot(...)
+     * methods ).
+     */
+    public PlotData() {
+        this(new DoubleColumn(), new DoubleColumn());
+    }
+
+    PlotData(Column x, Column y) {
+        this(x, y, 0, 0, 0, 0, true);
+        reCalculateBounds();
+    }
+
+    /***
+     * Create PlotData object over existing columns whose bounds (and whether x
+     * is sorted) are already known, without scanning the data.
+     */
+    PlotData(Column x, Column y, double minX, double maxX, double minY, double maxY,
+            boolean sortedX) {
+        this.xDescents = sortedX ? 0 : 1;
         this.x = x;
         this.y = y;
-        reCalculateBounds();
-        pixelX = new ArrayList<>();
-        pixelY = new ArrayList<>();
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        pixelX = new float[0];
+        pixelY = new float[0];
 
         strokeColor = BLACK;
         fillColor = BLACK;
@@ -77,21 +149,31 @@ public class PlotData {
     }
 
     /***
-     * Create PlotData object from pre-made data lists x and y
+     * Create a PlotData object that wraps the arrays x and y directly instead of
+     * copying them. The caller can keep updating the arrays in place, and must
+     * call dataChanged() after doing so to have the plot pick up the new values.
+     * Adding or removing points through PlotData makes it take its own copy of
+     * the data, leaving the caller's arrays untouched.
      *
      * @param x array of x coordinates
      * @param y array of y coordinates
+     * @return the new PlotData object, or null if x and y are different lengths
      */
-    public PlotData(double[] x, double[] y) {
-        this(MathUtils.toList(x), MathUtils.toList(y));
+    public static PlotData wrap(double[] x, double[] y) {
+        if (x.length != y.length) {
+            System.err.println("Error: x and y arrays must be the same length");
+            return null;
+        }
+        return new PlotData(DoubleColumn.wrap(x), DoubleColumn.wrap(y));
     }
 
-    /***
-     * Create new PlotData object with no data (can be added later with .plot(...)
-     * methods ).
-     */
-    public PlotData() {
-        this(new ArrayList<Double>(), new ArrayList<Double>());
+    private static DoubleColumn toColumn(List<Double> vals) {
+        DoubleColumn column = new DoubleColumn();
+        column.ensureCapacity(vals.size());
+        for (Double val : vals) {
+            column.add(val);
+        }
+        return column;
     }
 
     /***
@@ -100,10 +182,116 @@ public class PlotData {
      * @param index the index to remove (x, y) coordinates from the plot
      */
     public void remove(int index) {
-        if (!isInBounds(index))
+        if (!isInBounds(index) || !checkWritable())
             return;
-        x.remove(index);
-        y.remove(index);
+        if (index == 0 && size() > 1 && x.get(1) < x.get(0))
+            xDescents--;
+        mutableX().remove(index);
+        mutableY().remove(index);
+        version++;
+        if (index == 0)
+            numEvicted++;
+        else
+            numRewrites++;
+        if (index != 0 && windowX == null)
+            countXDescents();
+
+        if (windowX != null) {
+            if (index == 0) {
+                windowX.evict();
+                windowY.evict();
+                updateWindowBounds();
+            } else {
+                reCalculateWindowBounds();
+            }
+        }
+    }
+
+    /***
+     * Limit this dataset to its most recent maxSize points. The points are kept
+     * in a fixed-capacity circular buffer, so once the dataset is full each add
+     * evicts the oldest point in O(1) without allocating.
+     * The data bounds of a dataset with a max size track the exact min and max of
+     * the points currently kept, so they also shrink as old points are evicted.
+     *
+     * @param maxSize the maximum number of points to keep
+     * @return the updated PlotData object
+     */
+    public PlotData setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            System.err.println("Error: max size must be positive");
+            return this;
+        }
+        if (!checkWritable())
+            return this;
+        mutableX().bound(maxSize);
+        mutableY().bound(maxSize);
+        version++;
+        numRewrites++;
+        windowX = new SlidingExtrema(maxSize);
+        windowY = new SlidingExtrema(maxSize);
+        reCalculateWindowBounds();
+        return this;
+    }
+
+    /***
+     * Get the maximum number of points this dataset keeps, or -1 if it grows
+     * without limit.
+     *
+     * @return the maximum number of points
+     */
+    public int getMaxSize() {
+        return x.isBounded() ? x.capacity() : -1;
+    }
+
+    /***
+     * Check whether this dataset is at its max size, so that the next add will
+     * evict the oldest point.
+     *
+     * @return true if the dataset is bounded and full
+     */
+    public boolean isFull() {
+        return x.isBounded() && x.isFull();
+    }
+
+    /***
+     * Check that this dataset can be modified, printing an error if it can't.
+     * Read-only columns of a copy-on-write dataset are copied onto the heap.
+     *
+     * @return true if the dataset is writable
+     */
+    private boolean checkWritable() {
+        if (!(x instanceof DoubleColumn) || !(y instanceof DoubleColumn)) {
+            if (!copyOnWrite) {
+                System.err.println("Error: dataset is read-only");
+                return false;
+            }
+            x = new DoubleColumn(x);
+            y = new DoubleColumn(y);
+            countXDescents(); // the file only records whether x is sorted, not the count
+            screenVersion = -1; // screen coords weren't cached while the data was off-heap
+        }
+        return true;
+    }
+
+    /***
+     * Get the x column for writing to; only call once checkWritable() returned
+     * true.
+     */
+    private DoubleColumn mutableX() {
+        return (DoubleColumn) x;
+    }
+
+    private DoubleColumn mutableY() {
+        return (DoubleColumn) y;
+    }
+
+    /***
+     * Let a dataset over read-only columns (such as a mapped file) be modified:
+     * the first write copies the data onto the heap.
+     */
+    void setCopyOnWrite() {
+        this.copyOnWrite = true;
     }
 
     private boolean isInBounds(int index) {
@@ -155,11 +343,34 @@ public class PlotData {
      * @param new_y new y value
      */
     public void add(double new_x, double new_y) {
-        x.add(new_x);
-        y.add(new_y);
+        if (!checkWritable())
+            return;
+
+        boolean evicting = windowX != null && x.isFull();
+        if (evicting && size() > 1 && x.get(1) < x.get(0))
+            xDescents--;
+        if (size() > (evicting ? 1 : 0) && new_x < x.get(size() - 1))
+            xDescents++;
+
+        if (windowX != null) {
+            if (evicting) {
+                windowX.evict();
+                windowY.evict();
+                numEvicted++;
+            }
+            mutableX().add(new_x);
+            mutableY().add(new_y);
+            windowX.push(new_x);
+            windowY.push(new_y);
+            updateWindowBounds();
+        } else {
+            mutableX().add(new_x);
+            mutableY().add(new_y);
+            updateBounds(new_x, new_y);
+        }
 
-        updateBounds(new_x, new_y);
         dirty = true; // so parent can re-calculate bounds if desired.
+        version++;
     }
 
     /***
@@ -175,12 +386,74 @@ public class PlotData {
             System.err.println("Error: x and y arrays must be the same length");
             return;
         }
+        if (!checkWritable())
+            return;
 
+        mutableX().ensureCapacity(x.size() + new_x.length);
+        mutableY().ensureCapacity(y.size() + new_y.length);
         for (int i = 0; i < new_x.length; i++) {
             add(new_x[i], new_y[i]);
         }
     }
 
+    /***
+     * Overwrite the y values of this dataset in place, keeping its x values,
+     * style and position in the plot. Bounds are re-calculated in a single pass
+     * and no memory is allocated, so this is cheap enough to call every frame.
+     *
+     * @param new_y new y values; must have one value per existing point
+     */
+    public void update(double[] new_y) {
+        if (new_y.length != size()) {
+            System.err.println("Error: y array must have one value per data point");
+            return;
+        }
+        if (!checkWritable())
+            return;
+
+        mutableY().setAll(new_y);
+        dataChanged();
+    }
+
+    /***
+     * Replace the x and y values of this dataset in place, keeping its style and
+     * position in the plot. The existing storage is re-used when it is big
+     * enough, and bounds are re-calculated in a single pass.
+     *
+     * @param new_x new x values
+     * @param new_y new y values
+     */
+    public void update(double[] new_x, double[] new_y) {
+        if (new_x.length != new_y.length) {
+            System.err.println("Error: x and y arrays must be the same length");
+            return;
+        }
+        if (!checkWritable())
+            return;
+
+        mutableX().setAll(new_x);
+        mutableY().setAll(new_y);
+        dataChanged();
+    }
+
+    /***
+     * Signal that the data has been changed from outside PlotData (for example
+     * the arrays passed to wrap(...) were updated in place). Re-calculates the
+     * data bounds and marks the dataset dirty so the plot updates its bounds and
+     * screen coordinates on the next draw.
+     */
+    public void dataChanged() {
+        if (windowX != null) {
+            reCalculateWindowBounds();
+        } else {
+            minX = maxX = minY = maxY = 0;
+            reCalculateBounds();
+        }
+        dirty = true;
+        version++;
+        numRewrites++;
+    }
+
     /***
      * Update the min and max values to reflect a new set of data points
      *
@@ -214,18 +487,56 @@ public class PlotData {
         return this.strokeColor;
     }
 
+    /***
+     * Get the screen x coordinate of point i, as of the last rescale.
+     *
+     * @param i index of the point
+     * @return screen x coordinate
+     */
     public float getDisplayX(int i) {
-        return this.pixelX.get(i);
+        if (isScreenCached(i))
+            return this.pixelX[i];
+        return transform.screenX(x.get(i));
     }
 
+    /***
+     * Get the screen y coordinate of point i, as of the last rescale.
+     *
+     * @param i index of the point
+     * @return screen y coordinate
+     */
     public float getDisplayY(int i) {
-        return this.pixelY.get(i);
+        if (isScreenCached(i))
+            return this.pixelY[i];
+        return transform.screenY(y.get(i));
+    }
+
+    /***
+     * Check whether the screen coordinates of point i were cached by the last
+     * rescale (only points that can be drawn are, and never off-heap data).
+     */
+    private boolean isScreenCached(int i) {
+        return sampler == null && !x.isOffHeap() && i >= drawnFrom && i < drawnTo;
+    }
+
+    /***
+     * Check whether the x values of this dataset are in non-decreasing order.
+     * Kept up to date as points are added and removed. Sorted datasets only
+     * rescale and draw the points in view, found by binary search.
+     *
+     * @return true if x is sorted
+     */
+    public boolean isSortedX() {
+        return xDescents == 0;
     }
 
     /***
      * Re-scale dataset to bounds given by parameters. Used by Plot.Plot to
      * transform data for display once and then
-     * never again until updated.
+     * never again until updated: if neither the data nor the bounds have changed
+     * since the last call, the cached screen coordinates are re-used.
+     * Screen coordinates of off-heap datasets aren't cached (that would put a
+     * copy of the data back on the heap); they are calculated as they're drawn.
      *
      * @param displayMinX
      * @param displayMaxX
@@ -234,13 +545,162 @@ public class PlotData {
      */
     public void rescale(double displayMinX, double displayMaxX, double displayMinY, double displayMaxY,
             double dataMinX, double dataMaxX, double dataMinY, double dataMaxY) {
-        pixelX.clear();
-        pixelY.clear();
+        if (screenVersion == version && transform != null && transform.matches(displayMinX, displayMaxX,
+                displayMinY, displayMaxY, dataMinX, dataMaxX, dataMinY, dataMaxY)) {
+            return;
+        }
 
-        for (int i = 0; i < size(); i++) {
-            pixelX.add((int) ScatterPlot.map(x.get(i), dataMinX, dataMaxX, displayMinX, displayMaxX));
-            pixelY.add((int) ScatterPlot.map(y.get(i), dataMinY, dataMaxY, displayMinY, displayMaxY));
+        transform = new ScreenTransform(displayMinX, displayMaxX, displayMinY, displayMaxY,
+                dataMinX, dataMaxX, dataMinY, dataMaxY);
+        int n = size();
+        screenVersion = version;
+        findViewRange(dataMinX, dataMaxX);
+        if (sampler != null && !sampler.isCurrent(version, dataMinX, dataMaxX)) {
+            resample(dataMinX, dataMaxX);
         }
+        if (x.isOffHeap() || sampler != null) {
+            // screen coords of sampled points aren't cached either; there are few of them
+            numPixels = n;
+            return;
+        }
+
+        if (pixelX.length < n) {
+            // grow by at least half so a growing dataset doesn't re-allocate every frame
+            int length = Math.max(n, Math.min(x.capacity(), pixelX.length + (pixelX.length >> 1)));
+            pixelX = new float[length];
+            pixelY = new float[length];
+        }
+
+        if (drawnTo - drawnFrom >= ParallelScan.THRESHOLD) {
+            ParallelScan.toScreen(x, y, transform, pixelX, pixelY, drawnFrom, drawnTo);
+        } else {
+            for (int i = drawnFrom; i < drawnTo; i++) {
+                pixelX[i] = transform.screenX(x.get(i));
+                pixelY[i] = transform.screenY(y.get(i));
+            }
+        }
+        numPixels = n;
+    }
+
+    /***
+     * Turn on Largest-Triangle-Three-Buckets downsampling: only (at most)
+     * targetPoints points of the data in view, chosen to keep the shape of the
+     * series, are transformed and drawn. The chosen points are cached and only
+     * re-calculated when the data or the x range in view changes.
+     * Note: downsampling assumes points are in order of increasing x, and only
+     * the screen coordinates of the chosen points are kept up to date.
+     *
+     * @param targetPoints number of points to draw (at least 3), or 0 to draw
+     *                     every point
+     * @return the updated PlotData object
+     */
+    public PlotData downsample(int targetPoints) {
+        if (targetPoints == 0) {
+            sampler = null;
+        } else if (targetPoints < 3) {
+            System.err.println("Error: downsample target must be at least 3 points (or 0 to turn off)");
+            return this;
+        } else {
+            sampler = new LTTBSampler(targetPoints);
+        }
+        screenVersion = -1; // screen coords need re-calculating for the new set of points
+        styleVersion++;
+        return this;
+    }
+
+    /***
+     * Get the number of points this dataset is downsampled to, or 0 if
+     * downsampling is off.
+     *
+     * @return the downsample target
+     */
+    public int getDownsampleTarget() {
+        return sampler == null ? 0 : sampler.getTarget();
+    }
+
+    /***
+     * Get the number of points that are drawn: every point, or the downsampled
+     * subset if downsampling is on.
+     *
+     * @return number of points drawn
+     */
+    int getNumDrawn() {
+        return sampler == null ? drawnTo - drawnFrom : sampler.size();
+    }
+
+    /***
+     * Get the data index of the k'th point that is drawn.
+     *
+     * @param k which drawn point, from 0 to getNumDrawn() - 1
+     * @return index of the point in the dataset
+     */
+    int getDrawnIndex(int k) {
+        return sampler == null ? drawnFrom + k : sampler.get(k);
+    }
+
+    /***
+     * Set [drawnFrom, drawnTo) to the range of indices that can be in view for
+     * the x range [viewMinX, viewMaxX]. For data sorted by x this is found by
+     * binary search and includes one point either side of the view, so lines
+     * leaving the view are still drawn. Otherwise it is every point.
+     */
+    private void findViewRange(double viewMinX, double viewMaxX) {
+        int n = size();
+        if (!isSortedX()) {
+            drawnFrom = 0;
+            drawnTo = n;
+            return;
+        }
+
+        drawnFrom = Math.max(0, firstIndexWithXAtLeast(viewMinX, false) - 1);
+        drawnTo = Math.min(n, firstIndexWithXAtLeast(viewMaxX, true) + 1);
+        if (drawnTo < drawnFrom) { // view range is inverted
+            drawnTo = drawnFrom;
+        }
+    }
+
+    /***
+     * Binary search sorted x for the first index whose x is >= val (or > val if
+     * strict). Returns size() if there is none.
+     */
+    private int firstIndexWithXAtLeast(double val, boolean strict) {
+        int lo = 0, hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double midX = x.get(mid);
+            if (midX < val || (strict && midX == val)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /***
+     * Re-select the points to draw for the x range [viewMinX, viewMaxX]. The
+     * points just outside the range on each side are included so lines leaving
+     * the view are still drawn.
+     */
+    private void resample(double viewMinX, double viewMaxX) {
+        if (isSortedX()) {
+            sampler.sample(this, drawnFrom, drawnTo, version, viewMinX, viewMaxX);
+            return;
+        }
+
+        int n = size();
+        int from = 0;
+        while (from < n && (x.get(from) < viewMinX || x.get(from) > viewMaxX))
+            from++;
+        int to = n;
+        while (to > from && (x.get(to - 1) < viewMinX || x.get(to - 1) > viewMaxX))
+            to--;
+
+        if (from < to) {
+            from = Math.max(0, from - 1);
+            to = Math.min(n, to + 1);
+        }
+        sampler.sample(this, from, to, version, viewMinX, viewMaxX);
     }
 
     /**
@@ -253,6 +713,7 @@ public class PlotData {
      */
     public PlotData fillColor(String color) {
         this.fillColor = getColorValFor(color);
+        styleVersion++;
         return this;
     }
 
@@ -266,17 +727,23 @@ public class PlotData {
      */
     public PlotData strokeColor(String color) {
         this.strokeColor = getColorValFor(color);
+        styleVersion++;
         return this;
     }
 
     public PlotData strokeWeight(int weight) {
         this.strokeWeight = weight;
+        styleVersion++;
         return this;
     }
 
     /**
      * Sets the style of the plot data.
-     * "." = points, "-" = line, "--" = dashed line
+     * "." = points, "-" = line, "--" = dashed line, "," = pixels (square markers
+     * the size of the stroke weight, written straight into the pixel buffer; much
+     * faster than points for dense scatter plots), "density" = heatmap of how
+     * many points fall in each pixel (for datasets with far more points than
+     * pixels)
      * 
      * (Note: dash style requires a .dashLength() to be set.
      * 
@@ -290,10 +757,15 @@ public class PlotData {
             this.style = LINE;
         } else if ("--".equals(style)) {
             this.style = Style.DASH;
+        } else if (",".equals(style)) {
+            this.style = PIXEL;
+        } else if ("density".equals(style)) {
+            this.style = DENSITY;
         } else {
             System.err.println("Style " + style + " not recognized.");
         }
 
+        styleVersion++;
         return this;
     }
 
@@ -306,9 +778,58 @@ public class PlotData {
      */
     public PlotData dashLength(int length) {
         this.dashLength = length;
+        styleVersion++;
+        return this;
+    }
+
+    /**
+     * Sets how point counts are mapped to opacity in the "density" style.
+     * "linear" (the default) or "log"; log scale shows sparse areas better when a
+     * few pixels are very dense.
+     *
+     * @param scale the scale to use
+     * @return the updated PlotData object
+     */
+    public PlotData densityScale(String scale) {
+        if ("linear".equals(scale)) {
+            this.densityLogScale = false;
+        } else if ("log".equals(scale)) {
+            this.densityLogScale = true;
+        } else {
+            System.err.println("Density scale " + scale + " not recognized.");
+        }
+        styleVersion++;
         return this;
     }
 
+    /***
+     * Write the style of this dataset (STYLE_BYTES bytes) to out.
+     */
+    void writeStyle(ByteBuffer out) {
+        out.putInt(style.ordinal());
+        out.putInt(strokeColor).putInt(fillColor);
+        out.putFloat(strokeWeight);
+        out.putInt(dashLength);
+        out.putInt(densityLogScale ? 1 : 0);
+        out.putInt(getDownsampleTarget());
+    }
+
+    /***
+     * Read a style written by writeStyle(...) from in.
+     */
+    void readStyle(ByteBuffer in) {
+        int styleIndex = in.getInt();
+        this.style = styleIndex >= 0 && styleIndex < Style.values().length ? Style.values()[styleIndex] : POINT;
+        this.strokeColor = in.getInt();
+        this.fillColor = in.getInt();
+        this.strokeWeight = in.getFloat();
+        this.dashLength = in.getInt();
+        this.densityLogScale = in.getInt() != 0;
+        int target = in.getInt();
+        this.sampler = target >= 3 ? new LTTBSampler(target) : null;
+        styleVersion++;
+    }
+
     private int getColorValFor(String color) {
         if (color.equals("red")) {
             return RED;
@@ -341,6 +862,103 @@ public class PlotData {
         return maxY;
     }
 
+    /***
+     * Get a counter that changes every time the data in this set changes. Lets
+     * anything caching values derived from the data tell whether they are stale.
+     *
+     * @return the current data version
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /***
+     * Get the number of points ever removed from the front of this dataset
+     * (including evictions from a dataset with a max size). Together with an
+     * index it gives a point's position in the stream of points ever added,
+     * which doesn't change as older points are evicted.
+     *
+     * @return the number of points evicted
+     */
+    long getNumEvicted() {
+        return numEvicted;
+    }
+
+    /***
+     * Get a counter that changes every time the data changes other than by
+     * adding points to the end or evicting them from the front.
+     *
+     * @return the current rewrite count
+     */
+    int getNumRewrites() {
+        return numRewrites;
+    }
+
+    /***
+     * Publish a copy of the current data and style for drawing. Once a dataset
+     * has been published, plots draw the most recently published copy instead
+     * of the dataset itself. This lets one thread keep changing the data while
+     * another draws it, without locks and without the drawing ever seeing a
+     * half-finished change: call publish() after each batch of changes.
+     *
+     * @return this PlotData object
+     */
+    public PlotData publish() {
+        PlotData copy = snapshot(published);
+        copy.dirty = true; // so the plot picks up the copy's bounds
+        published = copy; // only visible to the drawing thread once fully built
+        return this;
+    }
+
+    /***
+     * Check whether this dataset has been published, so plots draw its published
+     * copy rather than the dataset itself.
+     *
+     * @return true once publish() has been called
+     */
+    boolean isPublished() {
+        return published != null;
+    }
+
+    /***
+     * Get the copy plots draw for this dataset: the last one published, or the
+     * dataset itself if it has never been published.
+     *
+     * @return the data to draw
+     */
+    public PlotData getPublished() {
+        PlotData copy = published;
+        return copy == null ? this : copy;
+    }
+
+    /***
+     * Copy the data and style of this dataset, for drawing on another thread
+     * while this one keeps changing.
+     *
+     * @param previous the last snapshot of this dataset that was drawn, or null.
+     *                 The new snapshot's downsampling carries on from it rather
+     *                 than from this dataset, which isn't drawn once snapshots
+     *                 are.
+     * @return the copy
+     */
+    PlotData snapshot(PlotData previous) {
+        PlotData copy = new PlotData(this);
+        if (copy.sampler != null && previous != null && previous.sampler != null
+                && previous.sampler.getTarget() == copy.sampler.getTarget()) {
+            copy.sampler = previous.sampler.copy();
+        }
+        return copy;
+    }
+
+    /***
+     * Get a counter that changes every time the style of this set changes.
+     *
+     * @return the current style version
+     */
+    int getStyleVersion() {
+        return styleVersion;
+    }
+
     public boolean isDirty() {
         return dirty;
     }
@@ -357,23 +975,105 @@ public class PlotData {
         return this.strokeWeight;
     }
 
+    /***
+     * Get a read-only view of the pre-calculated screen x coordinates. The view
+     * reads from the screen cache directly, so it reflects the latest rescale.
+     *
+     * @return list of screen x coordinates
+     */
     public List<Integer> getScreenXCoords() {
-        return this.pixelX;
+        return new AbstractList<Integer>() {
+            public Integer get(int i) {
+                return (int) getDisplayX(i);
+            }
+
+            public int size() {
+                return numPixels;
+            }
+        };
     }
 
+    /***
+     * Get a read-only view of the pre-calculated screen y coordinates. The view
+     * reads from the screen cache directly, so it reflects the latest rescale.
+     *
+     * @return list of screen y coordinates
+     */
     public List<Integer> getScreenYCoords() {
-        return this.pixelY;
+        return new AbstractList<Integer>() {
+            public Integer get(int i) {
+                return (int) getDisplayY(i);
+            }
+
+            public int size() {
+                return numPixels;
+            }
+        };
     }
 
     /***
      * Re-calculate min and max data values by looping over all existing data
      */
     private void reCalculateBounds() {
+        if (size() >= ParallelScan.THRESHOLD) {
+            ParallelScan.Bounds bounds = ParallelScan.bounds(x, y, size());
+            minX = Math.min(minX, bounds.minX);
+            maxX = Math.max(maxX, bounds.maxX);
+            minY = Math.min(minY, bounds.minY);
+            maxY = Math.max(maxY, bounds.maxY);
+            xDescents = bounds.xDescents;
+            return;
+        }
+
+        xDescents = 0;
         for (int i = 0; i < size(); i++) {
             updateBounds(x.get(i), y.get(i));
+            if (i > 0 && x.get(i) < x.get(i - 1))
+                xDescents++;
         }
     }
 
+    /***
+     * Re-count the points whose x is smaller than the x of the point before them.
+     */
+    private void countXDescents() {
+        xDescents = 0;
+        for (int i = 1; i < size(); i++) {
+            if (x.get(i) < x.get(i - 1))
+                xDescents++;
+        }
+    }
+
+    /***
+     * Rebuild the sliding window min and max trackers from the data currently
+     * kept by a dataset with a max size.
+     */
+    private void reCalculateWindowBounds() {
+        windowX.clear();
+        windowY.clear();
+        xDescents = 0;
+        for (int i = 0; i < size(); i++) {
+            windowX.push(x.get(i));
+            windowY.push(y.get(i));
+            if (i > 0 && x.get(i) < x.get(i - 1))
+                xDescents++;
+        }
+        updateWindowBounds();
+    }
+
+    /***
+     * Set the min and max values to the exact bounds of the points currently kept
+     * by a dataset with a max size.
+     */
+    private void updateWindowBounds() {
+        if (windowX.isEmpty())
+            return;
+        minX = windowX.min();
+        maxX = windowX.max();
+        minY = windowY.min();
+        maxY = windowY.max();
+    }
+
     /**
      * Draws the plot data on the given PApplet window using the specified plot
      * configuration. Draws the line based on the style of the plot data.
@@ -382,40 +1082,192 @@ public class PlotData {
      * @param p      The Plot to use for drawing.
      */
     public void drawSelf(PApplet window, Plot p) {
+        drawSelf(new ProcessingRenderer(window), p);
+    }
+
+    /**
+     * Draws the plot data with the given renderer using the specified plot
+     * configuration.
+     *
+     * @param window The renderer to draw the plot data with.
+     * @param p      The Plot to use for drawing.
+     */
+    public void drawSelf(Renderer window, Plot p) {
+        drawSelf(window, p.getView());
+    }
+
+    /***
+     * Draw the dataset with the given renderer, clipped to the plot position
+     * in view.
+     *
+     * @param window the renderer to draw the plot data with
+     * @param view   position and data view of the plot the dataset is in
+     */
+    void drawSelf(Renderer window, ScreenTransform view) {
         window.fill(this.getFillColor());
         window.stroke(this.getStrokeColor());
         window.strokeWeight(this.getStrokeWeight());
 
         if (this.getStyle() == POINT) {
-            for (int i = 0; i < this.size(); i++) {
-                if (p.isInBounds(this.getDisplayX(i), this.getDisplayY(i))) {
-                    window.ellipse(this.getDisplayX(i), this.getDisplayY(i), 2, 2);
-                }
-            }
+            drawPoints(window, view);
         } else if (this.getStyle() == LINE) {
-            for (int i = 1; i < this.size(); i++) {
-                float x1 = this.getDisplayX(i - 1);
-                float y1 = this.getDisplayY(i - 1);
-                float x2 = this.getDisplayX(i);
-                float y2 = this.getDisplayY(i);
+            drawLine(window, view);
+        } else if (this.getStyle() == DASH) {
+            drawDashes(window);
+        } else if (this.getStyle() == PIXEL) {
+            drawPixels(window, view);
+        } else if (this.getStyle() == DENSITY) {
+            drawDensity(window, view);
+        }
+    }
+
+    /**
+     * Draws the dataset as a heatmap of point counts per pixel. The points are
+     * only re-binned after the data or view changes; otherwise this is a single
+     * image draw.
+     */
+    private void drawDensity(Renderer window, ScreenTransform view) {
+        if (densityGrid == null) {
+            densityGrid = new DensityGrid();
+        }
+        densityGrid.update(this, transform, view, this.getStrokeColor(), densityLogScale);
+        window.image(densityGrid.getPixels(), densityGrid.getWidth(), densityGrid.getHeight(), 1,
+                densityGrid.getLeft(), densityGrid.getTop());
+    }
+
+    /**
+     * Draws every point in view by writing a square marker straight into the
+     * window's pixel buffer, skipping the shape renderer entirely. Markers are
+     * clipped to the plot and drawn opaque in the stroke color.
+     */
+    private void drawPixels(Renderer window, ScreenTransform view) {
+        int density = window.getPixelDensity();
+        int bufferWidth = window.getPixelWidth();
+        int size = Math.max(1, Math.round(this.getStrokeWeight() * density));
+        int offset = size / 2;
+
+        // plot rectangle in buffer pixels, inclusive
+        int left = Math.max(0, (int) Math.ceil(view.getLeftX() * density));
+        int right = Math.min(bufferWidth - 1, (int) (view.getRightX() * density));
+        int top = Math.max(0, (int) Math.ceil(view.getTopY() * density));
+        int bottom = Math.min(window.getPixelHeight() - 1, (int) (view.getBottomY() * density));
+        int color = this.getStrokeColor();
 
-                int[] clipped = p.clipLine((int) x1, (int) y1, (int) x2, (int) y2);
+        int[] pixels = window.loadPixels();
+        int numDrawn = getNumDrawn();
+        for (int k = 0; k < numDrawn; k++) {
+            int i = getDrawnIndex(k);
+            int x0 = (int) (this.getDisplayX(i) * density) - offset;
+            int y0 = (int) (this.getDisplayY(i) * density) - offset;
+            int x1 = Math.min(right, x0 + size - 1);
+            int y1 = Math.min(bottom, y0 + size - 1);
+            x0 = Math.max(left, x0);
+            y0 = Math.max(top, y0);
 
-                if (clipped != null) {
-                    window.line(clipped[0], clipped[1], clipped[2], clipped[3]);
+            for (int py = y0; py <= y1; py++) {
+                int row = py * bufferWidth;
+                for (int px = x0; px <= x1; px++) {
+                    pixels[row + px] = color;
                 }
             }
-        } else if (this.getStyle() == DASH) {
-            for (int i = dashLength; i < this.size() - dashLength; i += dashLength) {
-                for (int j = i - dashLength / 3; j < i + dashLength / 3; j++) {
-                    float x1 = this.getDisplayX(j);
-                    float y1 = this.getDisplayY(j);
-                    float x2 = this.getDisplayX(j + 1);
-                    float y2 = this.getDisplayY(j + 1);
-
-                    window.line(x1, y1, x2, y2);
+        }
+        window.updatePixels();
+    }
+
+    /**
+     * Draws every point in view as one POINTS shape, so style is set once for the
+     * whole dataset instead of once per point.
+     */
+    private void drawPoints(Renderer window, ScreenTransform view) {
+        // POINTS are drawn as dots the size of the stroke weight; match the old 2
+        // pixel outlined ellipses
+        window.strokeWeight(this.getStrokeWeight() + 2);
+        window.beginShape(Renderer.POINTS);
+        int numDrawn = getNumDrawn();
+        for (int k = 0; k < numDrawn; k++) {
+            int i = getDrawnIndex(k);
+            float px = this.getDisplayX(i);
+            float py = this.getDisplayY(i);
+            if (view.isInBounds(px, py)) {
+                window.vertex(px, py);
+            }
+        }
+        window.endShape();
+        window.strokeWeight(this.getStrokeWeight()); // what's drawn next (like the grid) expects it
+    }
+
+    /**
+     * Draws the (decimated) line as a few polylines: consecutive segments that are
+     * still connected after clipping go into the same shape, which is only broken
+     * where the line leaves the plot.
+     */
+    private void drawLine(Renderer window, ScreenTransform view) {
+        M4Decimator vertices = getLineVertices(view);
+        int[] clipped = new int[4];
+        boolean inShape = false;
+        int endX = 0, endY = 0; // last vertex of the current shape
+
+        window.noFill();
+        for (int i = 1; i < vertices.size(); i++) {
+            int x1 = (int) vertices.getX(i - 1);
+            int y1 = (int) vertices.getY(i - 1);
+            int x2 = (int) vertices.getX(i);
+            int y2 = (int) vertices.getY(i);
+
+            if (!view.clipLine(x1, y1, x2, y2, clipped)) {
+                continue;
+            }
+
+            if (!inShape || clipped[0] != endX || clipped[1] != endY) {
+                if (inShape) {
+                    window.endShape();
                 }
+                window.beginShape(Renderer.POLYLINE);
+                window.vertex(clipped[0], clipped[1]);
+                inShape = true;
+            }
+            window.vertex(clipped[2], clipped[3]);
+            endX = clipped[2];
+            endY = clipped[3];
+        }
+        if (inShape) {
+            window.endShape();
+        }
+    }
+
+    /**
+     * Draws every dash segment as one LINES shape.
+     */
+    private void drawDashes(Renderer window) {
+        window.beginShape(Renderer.LINES);
+        int numDrawn = getNumDrawn();
+        for (int i = dashLength; i < numDrawn - dashLength; i += dashLength) {
+            for (int j = i - dashLength / 3; j < i + dashLength / 3; j++) {
+                int a = getDrawnIndex(j);
+                int b = getDrawnIndex(j + 1);
+                window.vertex(this.getDisplayX(a), this.getDisplayY(a));
+                window.vertex(this.getDisplayX(b), this.getDisplayY(b));
             }
         }
+        window.endShape();
+    }
+
+    /***
+     * Get the vertices to draw this dataset's line with: the screen coordinates
+     * reduced to at most four per pixel column. Only re-calculated after the
+     * screen coordinates have changed.
+     *
+     * @param view position and data view of the plot the dataset is in
+     * @return the decimated vertices
+     */
+    private M4Decimator getLineVertices(ScreenTransform view) {
+        if (lineVertices == null) {
+            lineVertices = new M4Decimator();
+        }
+        if (lineVerticesFor != transform) {
+            lineVertices.decimate(this, view.getLeftX(), view.getRightX());
+            lineVerticesFor = transform;
+        }
+        return lineVertices;
     }
 }
@@ -0,0 +1,202 @@
+package Plot;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/***
+ * Renders plots to images and PNG files without a window, for example to
+ * generate report charts on a server.
+ *
+ * The static methods render one plot on the calling thread. An exporter
+ * instance renders many plots in parallel on a fixed number of worker threads;
+ * each worker keeps its own image and PNG buffer and re-uses them for every
+ * plot of the same size. Plots that don't fit in the exporter's queue are
+ * rendered by the submitting thread with buffers used for that plot only.
+ *
+ * A plot (and its datasets) must not be drawn anywhere else while it is being
+ * rendered, and shouldn't be submitted again before its previous render is
+ * done.
+ */
+public class PlotExporter implements AutoCloseable {
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int QUEUED_PER_THREAD = 4; // plots waiting per worker before submit() blocks
+
+    private static final ThreadLocal<Buffers> threadBuffers = ThreadLocal.withInitial(Buffers::new);
+
+    private final ThreadPoolExecutor pool;
+
+    /***
+     * Create an exporter with one worker thread per processor.
+     */
+    public PlotExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /***
+     * Create an exporter with the given number of worker threads.
+     *
+     * @param threads number of plots to render at the same time
+     */
+    public PlotExporter(int threads) {
+        // a bounded queue where the submitting thread renders plots itself once it
+        // is full, so submitting thousands of plots doesn't queue them all up
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_PER_THREAD), Worker::new,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /***
+     * Render a plot to PNG on a worker thread.
+     *
+     * @param plot   the plot to render
+     * @param width  image width
+     * @param height image height
+     * @return the encoded PNG, once rendered
+     */
+    public Future<byte[]> submit(Plot plot, int width, int height) {
+        return pool.submit(() -> {
+            Thread thread = Thread.currentThread();
+            if (thread instanceof Worker) {
+                return ((Worker) thread).buffers.toPng(plot, width, height);
+            }
+            // run by the submitting thread, which shouldn't be left holding buffers
+            Buffers buffers = new Buffers();
+            try {
+                return buffers.toPng(plot, width, height);
+            } finally {
+                buffers.dispose();
+            }
+        });
+    }
+
+    /***
+     * Render plots to PNG in parallel and wait for all of them.
+     *
+     * @param plots  the plots to render
+     * @param width  image width
+     * @param height image height
+     * @return the encoded PNGs, in the same order as plots
+     * @throws IOException if a plot couldn't be encoded
+     */
+    public List<byte[]> renderAll(List<? extends Plot> plots, int width, int height) throws IOException {
+        List<Future<byte[]>> futures = new ArrayList<>(plots.size());
+        for (Plot plot : plots) {
+            futures.add(submit(plot, width, height));
+        }
+
+        List<byte[]> pngs = new ArrayList<>(plots.size());
+        try {
+            for (Future<byte[]> future : futures) {
+                pngs.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering plots", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return pngs;
+    }
+
+    /***
+     * Stop the worker threads once the plots already submitted are rendered.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /***
+     * Render a plot to a new image on a white background.
+     *
+     * @param plot   the plot to render
+     * @param width  image width
+     * @param height image height
+     * @return the image
+     */
+    public static BufferedImage render(Plot plot, int width, int height) {
+        RasterRenderer raster = new RasterRenderer(width, height);
+        draw(plot, raster);
+        raster.dispose();
+        return raster.getImage();
+    }
+
+    /***
+     * Render a plot on a white background and encode it as PNG. The image is
+     * drawn into a buffer kept by the calling thread.
+     *
+     * @param plot   the plot to render
+     * @param width  image width
+     * @param height image height
+     * @return the encoded PNG
+     * @throws IOException if the image couldn't be encoded
+     */
+    public static byte[] toPng(Plot plot, int width, int height) throws IOException {
+        return threadBuffers.get().toPng(plot, width, height);
+    }
+
+    private static void draw(Plot plot, RasterRenderer raster) {
+        raster.background(BACKGROUND);
+        plot.draw(raster);
+    }
+
+    /***
+     * Image and PNG buffer for rendering plots one at a time, re-used while the
+     * plots are the same size.
+     */
+    private static class Buffers {
+        private RasterRenderer raster;
+        private final ByteArrayOutputStream png = new ByteArrayOutputStream();
+
+        byte[] toPng(Plot plot, int width, int height) throws IOException {
+            if (raster == null || raster.getWidth() != width || raster.getHeight() != height) {
+                dispose();
+                raster = new RasterRenderer(width, height);
+            }
+            draw(plot, raster);
+
+            png.reset();
+            // encode in memory; ImageIO would otherwise cache the stream in a temp file
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(png)) {
+                if (!ImageIO.write(raster.getImage(), "png", out)) {
+                    throw new IOException("No PNG writer available");
+                }
+            }
+            return png.toByteArray();
+        }
+
+        void dispose() {
+            if (raster != null)
+                raster.dispose();
+            raster = null;
+        }
+    }
+
+    /***
+     * Exporter worker thread, holding the buffers for the plots it renders so
+     * they go away with the thread.
+     */
+    private static class Worker extends Thread {
+        final Buffers buffers = new Buffers();
+
+        Worker(Runnable runnable) {
+            super(runnable, "PlotExporter");
+            setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package Plot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Saves a whole plot (settings, view, axes text and every dataset's data,
+ * bounds and style) to a binary file, and opens it again. Columns are written
+ * sequentially through a FileChannel and memory-mapped when the file is read,
+ * so reading only parses the headers: a plot with millions of points opens in
+ * about the same time as an empty one, and pages of data are read in by the
+ * operating system as they are drawn.
+ *
+ * Datasets of a plot that was read share the file's mapping until they are
+ * changed; the first change to a dataset copies its data onto the heap.
+ *
+ * File layout (all values little-endian):
+ *
+ * <pre>
+ * byte   magic[4] ("PLTF")
+ * int    version
+ * int    plot type (0: ScatterPlot, 1: TimeSeriesPlot)
+ * int    data point width (TimeSeriesPlot only)
+ * int    cornerX, cornerY, width, height
+ * int    settings set (bit i: Setting i is set)
+ * int    settings values (bit i: value of Setting i)
+ * int    flags (bit 0: view overridden, bit 1: needs scaling)
+ * int    number of datasets d
+ * double dataMinX, dataMaxX, dataMinY, dataMaxY
+ * double dataViewMinX, dataViewMaxX, dataViewMinY, dataViewMaxY
+ * int    x axis text size, y axis text size
+ * float  y axis text x adjust, x axis text y adjust
+ * d dataset entries of DATASET_ENTRY_SIZE bytes:
+ *   long   number of points n
+ *   long   byte offset of x[n] (followed by y[n])
+ *   double minX, maxX, minY, maxY
+ *   int    flags (bit 0: x values are sorted)
+ *   int    max size (-1 if unbounded)
+ *   style  (PlotData.STYLE_BYTES bytes)
+ *   (padding)
+ * double x[n], y[n] for each dataset
+ * </pre>
+ */
+public class PlotFile {
+    private static final byte[] MAGIC = "PLTF".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int DATASET_ENTRY_SIZE = 96;
+    private static final int TYPE_SCATTER = 0;
+    private static final int TYPE_TIME_SERIES = 1;
+    private static final int FLAG_OVERRIDE_VIEW = 1;
+    private static final int FLAG_NEED_SCALING = 2;
+    private static final int FLAG_SORTED_X = 1;
+
+    private PlotFile() {
+    }
+
+    /***
+     * Save plot to file. Datasets that have been published are saved as last
+     * published.
+     *
+     * @param file the file to write (replaced if it already exists)
+     * @param plot the plot to save (a ScatterPlot or TimeSeriesPlot)
+     * @throws IOException if the file can't be written or the type of plot
+     *                     can't be saved
+     */
+    public static void write(Path file, Plot plot) throws IOException {
+        int type;
+        int dataPointWidth = 0;
+        if (plot instanceof ScatterPlot) {
+            type = TYPE_SCATTER;
+        } else if (plot instanceof TimeSeriesPlot) {
+            type = TYPE_TIME_SERIES;
+            dataPointWidth = ((TimeSeriesPlot) plot).getDataPointWidth();
+        } else {
+            throw new IOException("Can't save plots of type " + plot.getClass().getName());
+        }
+
+        List<PlotData> datasets = new ArrayList<>();
+        for (PlotData dataset : plot.datasets) {
+            datasets.add(dataset.getPublished());
+        }
+        int numDatasets = datasets.size();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + numDatasets * DATASET_ENTRY_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putInt(type).putInt(dataPointWidth);
+        header.putInt(plot.cornerX).putInt(plot.cornerY).putInt(plot.width).putInt(plot.height);
+        int settingsSet = 0, settingsValues = 0;
+        for (Plot.Setting setting : plot.settings.keySet()) {
+            settingsSet |= 1 << setting.ordinal();
+            if (plot.settings.get(setting)) {
+                settingsValues |= 1 << setting.ordinal();
+            }
+        }
+        header.putInt(settingsSet).putInt(settingsValues);
+        header.putInt((plot.overrideDataView ? FLAG_OVERRIDE_VIEW : 0) | (plot.needScaling ? FLAG_NEED_SCALING : 0));
+        header.putInt(numDatasets);
+        header.putDouble(plot.dataMinX).putDouble(plot.dataMaxX).putDouble(plot.dataMinY).putDouble(plot.dataMaxY);
+        header.putDouble(plot.dataViewMinX).putDouble(plot.dataViewMaxX);
+        header.putDouble(plot.dataViewMinY).putDouble(plot.dataViewMaxY);
+        header.putInt(plot.axes.xAxisTextSize).putInt(plot.axes.yAxisTextSize);
+        header.putFloat(plot.axes.yAxisTextXAdjust).putFloat(plot.axes.xAxisTextYAdjust);
+
+        long offset = header.capacity();
+        for (int i = 0; i < numDatasets; i++) {
+            PlotData data = datasets.get(i);
+            header.position(HEADER_SIZE + i * DATASET_ENTRY_SIZE);
+            header.putLong(data.size()).putLong(offset);
+            header.putDouble(data.getDataMinX()).putDouble(data.getDataMaxX());
+            header.putDouble(data.getDataMinY()).putDouble(data.getDataMaxY());
+            header.putInt(data.isSortedX() ? FLAG_SORTED_X : 0);
+            header.putInt(data.getMaxSize());
+            data.writeStyle(header);
+            offset += 2L * data.size() * Double.BYTES;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.clear();
+            MappedPlotData.writeFully(channel, header);
+            for (PlotData data : datasets) {
+                MappedPlotData.writeColumns(channel, data);
+            }
+        }
+    }
+
+    /***
+     * Open a plot saved by PlotFile.write(...).
+     *
+     * @param file the file to read
+     * @return the plot, a ScatterPlot or TimeSeriesPlot as saved
+     * @throws IOException if the file can't be read or isn't a plot file
+     */
+    public static Plot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, file, 0, HEADER_SIZE);
+            if (!MappedPlotData.hasMagic(header, MAGIC)) {
+                throw new IOException(file + " is not a plot file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + header.getInt(4));
+            }
+
+            int type = header.getInt(8);
+            int x1 = header.getInt(16), y1 = header.getInt(20);
+            int x2 = x1 + header.getInt(24), y2 = y1 + header.getInt(28);
+            Plot plot;
+            if (type == TYPE_SCATTER) {
+                plot = new ScatterPlot(x1, y1, x2, y2);
+            } else if (type == TYPE_TIME_SERIES) {
+                plot = new TimeSeriesPlot(x1, y1, x2, y2, header.getInt(12));
+            } else {
+                throw new IOException(file + " has unknown plot type " + type);
+            }
+
+            int settingsSet = header.getInt(32), settingsValues = header.getInt(36);
+            for (Plot.Setting setting : Plot.Setting.values()) {
+                if ((settingsSet & (1 << setting.ordinal())) != 0) {
+                    plot.settings.put(setting, (settingsValues & (1 << setting.ordinal())) != 0);
+                }
+            }
+            int flags = header.getInt(40);
+            plot.overrideDataView = (flags & FLAG_OVERRIDE_VIEW) != 0;
+            plot.needScaling = (flags & FLAG_NEED_SCALING) != 0;
+            header.position(48);
+            plot.dataMinX = header.getDouble();
+            plot.dataMaxX = header.getDouble();
+            plot.dataMinY = header.getDouble();
+            plot.dataMaxY = header.getDouble();
+            plot.dataViewMinX = header.getDouble();
+            plot.dataViewMaxX = header.getDouble();
+            plot.dataViewMinY = header.getDouble();
+            plot.dataViewMaxY = header.getDouble();
+            plot.setTextSize(header.getInt(), header.getInt());
+            plot.setYAxisTextXAdjustment(header.getFloat());
+            plot.setXAxisTextYAdjustement(header.getFloat());
+
+            int numDatasets = header.getInt(44);
+            if (numDatasets < 0 || numDatasets > (channel.size() - HEADER_SIZE) / DATASET_ENTRY_SIZE) {
+                throw new IOException(file + " has invalid dataset count " + numDatasets);
+            }
+            ByteBuffer entries = readFully(channel, file, HEADER_SIZE, numDatasets * DATASET_ENTRY_SIZE);
+            for (int i = 0; i < numDatasets; i++) {
+                entries.position(i * DATASET_ENTRY_SIZE);
+                plot.datasets.add(readDataset(channel, file, entries));
+            }
+            return plot;
+        }
+    }
+
+    /***
+     * Map the dataset described by the entry at the position of entries.
+     */
+    private static PlotData readDataset(FileChannel channel, Path file, ByteBuffer entries) throws IOException {
+        long n = entries.getLong();
+        long offset = entries.getLong();
+        if (n < 0 || n > Integer.MAX_VALUE || offset < 0 || offset + 2 * n * Double.BYTES > channel.size()) {
+            throw new IOException(file + " is truncated or has an invalid dataset entry");
+        }
+
+        // mappings stay valid after the channel is closed
+        Column x = new MappedDoubleColumn(channel, offset, (int) n);
+        Column y = new MappedDoubleColumn(channel, offset + n * Double.BYTES, (int) n);
+        double minX = entries.getDouble(), maxX = entries.getDouble();
+        double minY = entries.getDouble(), maxY = entries.getDouble();
+        boolean sortedX = (entries.getInt() & FLAG_SORTED_X) != 0;
+        int maxSize = entries.getInt();
+
+        PlotData data = new PlotData(x, y, minX, maxX, minY, maxY, sortedX);
+        data.readStyle(entries);
+        data.setCopyOnWrite();
+        if (maxSize > 0) {
+            data.setMaxSize(maxSize); // bounded datasets are kept on the heap
+        }
+        return data;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, Path file, long position, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(file + " is too short to be a plot file");
+            }
+        }
+        return buffer;
+    }
+}
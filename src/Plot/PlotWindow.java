@@ -5,10 +5,10 @@ import processing.core.PVector;
 
 public class PlotWindow extends PApplet {
     private int screenWidth, screenHeight;
-    private ScatterPlot plt;
+    private Plot plt;
     private PVector startClick, endClick;
 
-    private PlotWindow(ScatterPlot p, int w, int h) {
+    private PlotWindow(Plot p, int w, int h) {
         this.plt = p;
         this.screenWidth = w;
         this.screenHeight = h;
@@ -18,6 +18,24 @@ public class PlotWindow extends PApplet {
         return new PlotWindow(new ScatterPlot(p), w, h);
     }
 
+    /***
+     * Get a window that shows p itself rather than a copy, so opening it costs
+     * nothing and data added to p afterwards shows up in the window right away.
+     * Zooming in the window changes the view of p.
+     *
+     * The window draws p on its own thread. To keep changing p's data from
+     * another thread, publish() each dataset after changing it (or use
+     * TimeSeriesPlot.offer(...)) so the window never draws a half-finished change.
+     *
+     * @param p the plot to show
+     * @param w window width
+     * @param h window height
+     * @return the window (call show() to open it)
+     */
+    public static PlotWindow getLiveWindowFor(Plot p, int w, int h) {
+        return new PlotWindow(p, w, h);
+    }
+
     public void settings() {
         size(this.screenWidth, this.screenHeight);
     }
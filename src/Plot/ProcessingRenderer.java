@@ -0,0 +1,226 @@
+package Plot;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+/***
+ * Renderer that draws into a Processing sketch (or one of its offscreen
+ * PGraphics layers).
+ */
+public class ProcessingRenderer implements Renderer {
+    private final PApplet window;
+    private final PGraphics g;
+    private PImage image; // wraps the pixels last passed to image(...)
+
+    /***
+     * Create a renderer that draws into a sketch's window.
+     *
+     * @param window the sketch to draw into
+     */
+    public ProcessingRenderer(PApplet window) {
+        this(window, window.g);
+    }
+
+    /***
+     * Create a renderer that draws into a graphics created by window.
+     *
+     * @param window the sketch g belongs to
+     * @param g      the graphics to draw into
+     */
+    public ProcessingRenderer(PApplet window, PGraphics g) {
+        this.window = window;
+        this.g = g;
+    }
+
+    PApplet getWindow() {
+        return window;
+    }
+
+    PGraphics getGraphics() {
+        return g;
+    }
+
+    @Override
+    public int getWidth() {
+        return g.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return g.height;
+    }
+
+    @Override
+    public int getPixelDensity() {
+        return g.pixelDensity;
+    }
+
+    @Override
+    public int getPixelWidth() {
+        return g.pixelWidth;
+    }
+
+    @Override
+    public int getPixelHeight() {
+        return g.pixelHeight;
+    }
+
+    @Override
+    public void beginDraw() {
+        g.beginDraw();
+        if (g != window.g && window.g.textFont != null) {
+            g.textFont(window.g.textFont); // so text measured on the window matches
+        }
+    }
+
+    @Override
+    public void endDraw() {
+        g.endDraw();
+    }
+
+    @Override
+    public void background(int color) {
+        g.background(color);
+    }
+
+    @Override
+    public void clear() {
+        g.clear();
+    }
+
+    @Override
+    public void fill(int color) {
+        g.fill(color);
+    }
+
+    @Override
+    public void noFill() {
+        g.noFill();
+    }
+
+    @Override
+    public void stroke(int color) {
+        g.stroke(color);
+    }
+
+    @Override
+    public void strokeWeight(float weight) {
+        g.strokeWeight(weight);
+    }
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2) {
+        g.line(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void rect(float x, float y, float width, float height) {
+        g.rect(x, y, width, height);
+    }
+
+    @Override
+    public void beginShape(int kind) {
+        if (kind == POINTS) {
+            g.beginShape(PConstants.POINTS);
+        } else if (kind == LINES) {
+            g.beginShape(PConstants.LINES);
+        } else {
+            g.beginShape();
+        }
+    }
+
+    @Override
+    public void vertex(float x, float y) {
+        g.vertex(x, y);
+    }
+
+    @Override
+    public void endShape() {
+        g.endShape();
+    }
+
+    @Override
+    public void textSize(float size) {
+        g.textSize(size);
+    }
+
+    @Override
+    public void textAlign(int alignX, int alignY) {
+        g.textAlign(toProcessing(alignX), toProcessing(alignY));
+    }
+
+    @Override
+    public float textWidth(String text) {
+        return g.textWidth(text);
+    }
+
+    @Override
+    public void text(String text, float x, float y) {
+        g.text(text, x, y);
+    }
+
+    @Override
+    public int[] loadPixels() {
+        g.loadPixels();
+        return g.pixels;
+    }
+
+    @Override
+    public void updatePixels() {
+        g.updatePixels();
+    }
+
+    @Override
+    public void image(int[] pixels, int width, int height, int pixelDensity, float x, float y) {
+        if (image == null || image.pixels != pixels || image.pixelWidth != width || image.pixelHeight != height
+                || image.pixelDensity != pixelDensity) {
+            image = new PImage(width / pixelDensity, height / pixelDensity, PConstants.ARGB, pixelDensity);
+            image.pixels = pixels; // share the caller's array instead of copying it
+        }
+        image.updatePixels(); // the contents may have changed since the last call
+        g.imageMode(PConstants.CORNER);
+        g.image(image, x, y);
+    }
+
+    @Override
+    public Renderer createLayer(int width, int height) {
+        return new ProcessingRenderer(window, window.createGraphics(width, height));
+    }
+
+    @Override
+    public void drawLayer(Renderer layer, float x, float y) {
+        if (!(layer instanceof ProcessingRenderer)) {
+            System.err.println("Error: layer was not created by a ProcessingRenderer");
+            return;
+        }
+        g.imageMode(PConstants.CORNER);
+        g.image(((ProcessingRenderer) layer).g, x, y);
+    }
+
+    @Override
+    public void dispose() {
+        image = null;
+        if (g != window.g) {
+            g.dispose();
+        }
+    }
+
+    private static int toProcessing(int align) {
+        switch (align) {
+            case LEFT:
+                return PConstants.LEFT;
+            case RIGHT:
+                return PConstants.RIGHT;
+            case TOP:
+                return PConstants.TOP;
+            case BASELINE:
+                return PConstants.BASELINE;
+            case BOTTOM:
+                return PConstants.BOTTOM;
+            default:
+                return PConstants.CENTER;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package Plot;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/***
+ * Renderer that draws into an in-memory ARGB image, without Processing or a
+ * window. Shapes and text go through Java2D; direct pixel access and image
+ * blending work on the image's int[] buffer. Useful for rendering plots on a
+ * headless server or for saving them straight to a file.
+ */
+public class RasterRenderer implements Renderer {
+    static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final Graphics2D g2;
+    private final int width, height;
+
+    private Color fillColor = Color.WHITE;
+    private Color strokeColor = Color.BLACK;
+    private int fillArgb = fillColor.getRGB(), strokeArgb = strokeColor.getRGB();
+    private boolean doFill = true;
+    private float strokeWeight = 1;
+    private int alignX = LEFT, alignY = BASELINE;
+
+    // reused so drawing doesn't allocate per primitive
+    private final Line2D.Float line = new Line2D.Float();
+    private final Ellipse2D.Float dot = new Ellipse2D.Float();
+    private final Rectangle2D.Float box = new Rectangle2D.Float();
+    private int shapeKind;
+    private float[] shapeVertices = new float[64];
+    private int shapeSize;
+
+    /***
+     * Create a transparent raster of the given size.
+     *
+     * @param width  width in pixels
+     * @param height height in pixels
+     */
+    public RasterRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g2.setFont(FONT);
+        applyStroke();
+    }
+
+    /***
+     * Get the image being drawn into, for example to save it with ImageIO.
+     *
+     * @return the image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /***
+     * Get the ARGB pixels of the image, row by row. Changes to the array show up
+     * in the image.
+     *
+     * @return the pixel buffer
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getPixelDensity() {
+        return 1;
+    }
+
+    @Override
+    public int getPixelWidth() {
+        return width;
+    }
+
+    @Override
+    public int getPixelHeight() {
+        return height;
+    }
+
+    @Override
+    public void beginDraw() {
+    }
+
+    @Override
+    public void endDraw() {
+    }
+
+    @Override
+    public void background(int color) {
+        Arrays.fill(pixels, color);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(pixels, 0);
+    }
+
+    @Override
+    public void fill(int color) {
+        if (color != fillArgb) {
+            fillArgb = color;
+            fillColor = new Color(color, true);
+        }
+        doFill = true;
+    }
+
+    @Override
+    public void noFill() {
+        doFill = false;
+    }
+
+    @Override
+    public void stroke(int color) {
+        if (color != strokeArgb) {
+            strokeArgb = color;
+            strokeColor = new Color(color, true);
+        }
+    }
+
+    @Override
+    public void strokeWeight(float weight) {
+        if (weight != strokeWeight) {
+            strokeWeight = weight;
+            applyStroke();
+        }
+    }
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2) {
+        line.setLine(x1, y1, x2, y2);
+        g2.setColor(strokeColor);
+        g2.draw(line);
+    }
+
+    @Override
+    public void rect(float x, float y, float width, float height) {
+        box.setRect(x, y, width, height);
+        if (doFill) {
+            g2.setColor(fillColor);
+            g2.fill(box);
+        }
+        g2.setColor(strokeColor);
+        g2.draw(box);
+    }
+
+    @Override
+    public void beginShape(int kind) {
+        shapeKind = kind;
+        shapeSize = 0;
+    }
+
+    @Override
+    public void vertex(float x, float y) {
+        if (shapeSize + 2 > shapeVertices.length) {
+            shapeVertices = Arrays.copyOf(shapeVertices, 2 * shapeVertices.length);
+        }
+        shapeVertices[shapeSize++] = x;
+        shapeVertices[shapeSize++] = y;
+    }
+
+    @Override
+    public void endShape() {
+        g2.setColor(strokeColor);
+        if (shapeKind == POINTS) {
+            float r = strokeWeight / 2;
+            for (int i = 0; i < shapeSize; i += 2) {
+                dot.setFrame(shapeVertices[i] - r, shapeVertices[i + 1] - r, strokeWeight, strokeWeight);
+                g2.fill(dot);
+            }
+        } else if (shapeKind == LINES) {
+            for (int i = 0; i + 3 < shapeSize; i += 4) {
+                line.setLine(shapeVertices[i], shapeVertices[i + 1], shapeVertices[i + 2], shapeVertices[i + 3]);
+                g2.draw(line);
+            }
+        } else if (shapeSize > 0) {
+            Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, shapeSize / 2);
+            path.moveTo(shapeVertices[0], shapeVertices[1]);
+            for (int i = 2; i < shapeSize; i += 2) {
+                path.lineTo(shapeVertices[i], shapeVertices[i + 1]);
+            }
+            if (doFill) {
+                g2.setColor(fillColor);
+                g2.fill(path);
+                g2.setColor(strokeColor);
+            }
+            g2.draw(path);
+        }
+        shapeSize = 0;
+    }
+
+    @Override
+    public void textSize(float size) {
+        if (size != g2.getFont().getSize2D()) {
+            g2.setFont(g2.getFont().deriveFont(size));
+        }
+    }
+
+    @Override
+    public void textAlign(int alignX, int alignY) {
+        this.alignX = alignX;
+        this.alignY = alignY;
+    }
+
+    @Override
+    public float textWidth(String text) {
+        return (float) g2.getFont().getStringBounds(text, g2.getFontRenderContext()).getWidth();
+    }
+
+    @Override
+    public void text(String text, float x, float y) {
+        FontMetrics metrics = g2.getFontMetrics();
+        if (alignX == CENTER) {
+            x -= textWidth(text) / 2;
+        } else if (alignX == RIGHT) {
+            x -= textWidth(text);
+        }
+
+        if (alignY == TOP) {
+            y += metrics.getAscent();
+        } else if (alignY == CENTER) {
+            y += (metrics.getAscent() - metrics.getDescent()) / 2f;
+        } else if (alignY == BOTTOM) {
+            y -= metrics.getDescent();
+        }
+
+        g2.setColor(fillColor);
+        g2.drawString(text, x, y);
+    }
+
+    @Override
+    public int[] loadPixels() {
+        return pixels;
+    }
+
+    @Override
+    public void updatePixels() {
+        // pixels is the image's own buffer, so there's nothing to copy back
+    }
+
+    @Override
+    public void image(int[] pixels, int width, int height, int pixelDensity, float x, float y) {
+        blend(pixels, width, height, pixelDensity, (int) x, (int) y);
+    }
+
+    @Override
+    public Renderer createLayer(int width, int height) {
+        return new RasterRenderer(width, height);
+    }
+
+    @Override
+    public void drawLayer(Renderer layer, float x, float y) {
+        if (!(layer instanceof RasterRenderer)) {
+            System.err.println("Error: layer was not created by a RasterRenderer");
+            return;
+        }
+        RasterRenderer raster = (RasterRenderer) layer;
+        blend(raster.pixels, raster.width, raster.height, 1, (int) x, (int) y);
+    }
+
+    /***
+     * Release the Java2D graphics drawing into the image. The image and its
+     * pixels stay readable.
+     */
+    @Override
+    public void dispose() {
+        g2.dispose();
+    }
+
+    /***
+     * Draw source pixels over this image with their top left corner at (x, y),
+     * blending by the source alpha. With a density above 1 every density'th
+     * source pixel in each direction is used.
+     */
+    private void blend(int[] src, int srcWidth, int srcHeight, int density, int x, int y) {
+        int fromX = Math.max(0, -x), toX = Math.min(srcWidth / density, width - x);
+        int fromY = Math.max(0, -y), toY = Math.min(srcHeight / density, height - y);
+        for (int sy = fromY; sy < toY; sy++) {
+            int srcRow = sy * density * srcWidth;
+            int dstRow = (sy + y) * width + x;
+            for (int sx = fromX; sx < toX; sx++) {
+                int s = src[srcRow + sx * density];
+                int a = s >>> 24;
+                if (a == 255) {
+                    pixels[dstRow + sx] = s;
+                } else if (a != 0) {
+                    pixels[dstRow + sx] = over(s, a, pixels[dstRow + sx]);
+                }
+            }
+        }
+    }
+
+    /***
+     * Composite color s with alpha a over color d (non-premultiplied ARGB).
+     */
+    private static int over(int s, int a, int d) {
+        int da = d >>> 24;
+        int outA = a + da * (255 - a) / 255;
+        if (outA == 0) {
+            return 0;
+        }
+        int r = (((s >> 16) & 0xFF) * a + ((d >> 16) & 0xFF) * da * (255 - a) / 255) / outA;
+        int g = (((s >> 8) & 0xFF) * a + ((d >> 8) & 0xFF) * da * (255 - a) / 255) / outA;
+        int b = ((s & 0xFF) * a + (d & 0xFF) * da * (255 - a) / 255) / outA;
+        return (outA << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private void applyStroke() {
+        g2.setStroke(new BasicStroke(strokeWeight, BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER));
+    }
+}
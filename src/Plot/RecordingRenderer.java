@@ -0,0 +1,289 @@
+package Plot;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/***
+ * Renderer that doesn't draw anything but records the calls made to it into a
+ * DrawList. Lets the work of preparing a plot's vertices happen on a
+ * background thread, leaving only the drawing itself to the thread that owns
+ * the window.
+ *
+ * Pixel writes (loadPixels/updatePixels) go into a transparent image the size
+ * of the target, which is recorded as an image draw. Pixel writes with nothing
+ * drawn in between (like several PIXEL datasets in a row) share one image.
+ * Layers are recorders too, and drawing one records its calls so far. Text is
+ * measured with the font RasterRenderer draws with, since the target's own font
+ * can't be used off its thread; the widths can differ slightly from the
+ * target's.
+ */
+class RecordingRenderer implements Renderer {
+    private final int width, height, pixelDensity;
+
+    private int[] ops = new int[64];
+    private int numOps;
+    private float[] floats = new float[256];
+    private int numFloats;
+    private final ArrayList<Object> objects = new ArrayList<>();
+
+    private int shapeCountIndex = -1; // where the vertex count of the open shape goes in ops
+    private int[] pixelImage; // buffer handed out by loadPixels()
+    private boolean pixelImageOnTop; // pixelImage is recorded and nothing has been drawn over it since
+    private Font font = RasterRenderer.FONT; // for measuring text
+    private final FontRenderContext fontContext = new FontRenderContext(null, true, true);
+
+    /***
+     * Create a recorder for a target of the given size.
+     *
+     * @param width        target width
+     * @param height       target height
+     * @param pixelDensity target pixel density
+     */
+    RecordingRenderer(int width, int height, int pixelDensity) {
+        this.width = width;
+        this.height = height;
+        this.pixelDensity = pixelDensity;
+    }
+
+    /***
+     * Get the calls recorded so far.
+     *
+     * @return the recorded calls
+     */
+    DrawList finish() {
+        pixelImageOnTop = false; // the list shares pixelImage, so don't write to it again
+        return new DrawList(width, height, pixelDensity, Arrays.copyOf(ops, numOps), Arrays.copyOf(floats, numFloats),
+                objects.toArray());
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getPixelDensity() {
+        return pixelDensity;
+    }
+
+    @Override
+    public int getPixelWidth() {
+        return width * pixelDensity;
+    }
+
+    @Override
+    public int getPixelHeight() {
+        return height * pixelDensity;
+    }
+
+    @Override
+    public void beginDraw() {
+    }
+
+    @Override
+    public void endDraw() {
+    }
+
+    @Override
+    public void background(int color) {
+        pixelImageOnTop = false;
+        op(DrawList.BACKGROUND, color);
+    }
+
+    @Override
+    public void clear() {
+        // nothing recorded before a clear shows, so a reused layer doesn't keep growing
+        numOps = 0;
+        numFloats = 0;
+        objects.clear();
+        pixelImage = null;
+        pixelImageOnTop = false;
+        op(DrawList.CLEAR);
+    }
+
+    @Override
+    public void fill(int color) {
+        op(DrawList.FILL, color);
+    }
+
+    @Override
+    public void noFill() {
+        op(DrawList.NO_FILL);
+    }
+
+    @Override
+    public void stroke(int color) {
+        op(DrawList.STROKE, color);
+    }
+
+    @Override
+    public void strokeWeight(float weight) {
+        op(DrawList.STROKE_WEIGHT);
+        floats(weight);
+    }
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2) {
+        pixelImageOnTop = false;
+        op(DrawList.LINE);
+        floats(x1, y1);
+        floats(x2, y2);
+    }
+
+    @Override
+    public void rect(float x, float y, float width, float height) {
+        pixelImageOnTop = false;
+        op(DrawList.RECT);
+        floats(x, y);
+        floats(width, height);
+    }
+
+    @Override
+    public void beginShape(int kind) {
+        pixelImageOnTop = false;
+        op(DrawList.BEGIN_SHAPE, kind, 0);
+        shapeCountIndex = numOps - 1;
+    }
+
+    @Override
+    public void vertex(float x, float y) {
+        floats(x, y);
+        ops[shapeCountIndex]++;
+    }
+
+    @Override
+    public void endShape() {
+        shapeCountIndex = -1;
+    }
+
+    @Override
+    public void textSize(float size) {
+        op(DrawList.TEXT_SIZE);
+        floats(size);
+        if (size != font.getSize2D()) {
+            font = font.deriveFont(size);
+        }
+    }
+
+    @Override
+    public void textAlign(int alignX, int alignY) {
+        op(DrawList.TEXT_ALIGN, alignX, alignY);
+    }
+
+    @Override
+    public float textWidth(String text) {
+        return (float) font.getStringBounds(text, fontContext).getWidth();
+    }
+
+    @Override
+    public void text(String text, float x, float y) {
+        pixelImageOnTop = false;
+        op(DrawList.TEXT);
+        floats(x, y);
+        objects.add(text);
+    }
+
+    @Override
+    public int[] loadPixels() {
+        if (pixelImage == null || !pixelImageOnTop) {
+            pixelImage = new int[getPixelWidth() * getPixelHeight()];
+        }
+        return pixelImage;
+    }
+
+    @Override
+    public void updatePixels() {
+        if (pixelImage != null && !pixelImageOnTop) {
+            recordImage(pixelImage, getPixelWidth(), getPixelHeight(), pixelDensity, 0, 0);
+            pixelImageOnTop = true; // the recorded image shows later writes to the buffer too
+        }
+    }
+
+    @Override
+    public void image(int[] pixels, int width, int height, int pixelDensity, float x, float y) {
+        // the caller may keep changing the pixels, so record a copy
+        recordImage(Arrays.copyOf(pixels, width * height), width, height, pixelDensity, x, y);
+    }
+
+    @Override
+    public Renderer createLayer(int width, int height) {
+        return new RecordingRenderer(width, height, pixelDensity);
+    }
+
+    @Override
+    public void drawLayer(Renderer layer, float x, float y) {
+        if (!(layer instanceof RecordingRenderer)) {
+            System.err.println("Error: layer was not created by a RecordingRenderer");
+            return;
+        }
+        pixelImageOnTop = false;
+        op(DrawList.LAYER);
+        floats(x, y);
+        objects.add(((RecordingRenderer) layer).finish());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private void recordImage(int[] pixels, int width, int height, int pixelDensity, float x, float y) {
+        pixelImageOnTop = false;
+        op(DrawList.IMAGE, width, height, pixelDensity);
+        floats(x, y);
+        objects.add(pixels);
+    }
+
+    private void op(int op) {
+        ensureOps(1);
+        ops[numOps++] = op;
+    }
+
+    private void op(int op, int a) {
+        ensureOps(2);
+        ops[numOps++] = op;
+        ops[numOps++] = a;
+    }
+
+    private void op(int op, int a, int b) {
+        ensureOps(3);
+        ops[numOps++] = op;
+        ops[numOps++] = a;
+        ops[numOps++] = b;
+    }
+
+    private void op(int op, int a, int b, int c) {
+        ensureOps(4);
+        ops[numOps++] = op;
+        ops[numOps++] = a;
+        ops[numOps++] = b;
+        ops[numOps++] = c;
+    }
+
+    private void ensureOps(int n) {
+        if (numOps + n > ops.length) {
+            ops = Arrays.copyOf(ops, 2 * ops.length);
+        }
+    }
+
+    private void floats(float a, float b) {
+        if (numFloats + 2 > floats.length) {
+            floats = Arrays.copyOf(floats, 2 * floats.length);
+        }
+        floats[numFloats++] = a;
+        floats[numFloats++] = b;
+    }
+
+    private void floats(float a) {
+        if (numFloats + 1 > floats.length) {
+            floats = Arrays.copyOf(floats, 2 * floats.length);
+        }
+        floats[numFloats++] = a;
+    }
+}
@@ -0,0 +1,185 @@
+package Plot;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/***
+ * Prepares the datasets of a plot for drawing on a background thread. Each
+ * frame the drawing thread hands the worker a snapshot of any dataset that
+ * changed and the current view; the worker rescales, clips and decimates the
+ * snapshots and records the result as an immutable DrawList. The drawing
+ * thread only ever draws the latest finished DrawList, so frame times don't
+ * depend on how long preparation takes. The plot shown can be a few frames
+ * behind the data while the worker catches up.
+ *
+ * Only one preparation per plot runs at a time; if the data or view changes
+ * while the worker is busy, a new preparation starts from the newest state
+ * once it's done. When there is no prepared frame for the target's size yet
+ * (the first draw, or drawing once into an exporter), the frame is prepared on
+ * the drawing thread instead, so a single draw never shows an empty plot.
+ */
+class RenderPipeline {
+    private static final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "PlotPrepare");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean busy = new AtomicBoolean(); // is a preparation running?
+    private volatile DrawList latest; // last finished preparation
+
+    // state of the last preparation started, only used on the drawing thread
+    private ScreenTransform lastView;
+    private int lastWidth, lastHeight, lastPixelDensity;
+    private PlotData[] sources = new PlotData[0];
+    private PlotData[] snapshots = new PlotData[0]; // owned by the worker once handed over
+    private int[] versions = new int[0];
+    private int[] styleVersions = new int[0];
+    private boolean pending = true; // has anything changed since the last preparation started?
+
+    /***
+     * Start preparing the datasets if they or the view changed, then draw the
+     * latest prepared frame.
+     *
+     * @param window   the renderer to draw with
+     * @param p        the plot the datasets belong to
+     * @param datasets the datasets to draw, in order
+     */
+    void draw(Renderer window, Plot p, List<PlotData> datasets) {
+        ScreenTransform view = checkView(window, p);
+        checkDatasets(datasets);
+
+        DrawList frame = latest;
+        boolean fits = frame != null && frame.isFor(lastWidth, lastHeight, lastPixelDensity);
+        if (pending && !fits) {
+            // nothing to show for this target yet, so don't wait for a worker
+            claim();
+            try {
+                pending = false;
+                latest = prepare(snapshots, view, lastWidth, lastHeight, lastPixelDensity);
+            } finally {
+                release();
+            }
+        } else if (pending && busy.compareAndSet(false, true)) {
+            pending = false;
+            PlotData[] toPrepare = snapshots.clone();
+            int width = lastWidth, height = lastHeight, pixelDensity = lastPixelDensity;
+            workers.execute(() -> {
+                try {
+                    latest = prepare(toPrepare, view, width, height, pixelDensity);
+                } finally {
+                    release();
+                }
+            });
+        }
+
+        frame = latest;
+        if (frame != null) {
+            frame.drawTo(window);
+        }
+    }
+
+    /***
+     * Wait until the preparation in progress, if any, has finished. The next
+     * draw then shows its result.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitPrepared() throws InterruptedException {
+        synchronized (busy) {
+            while (busy.get()) {
+                busy.wait();
+            }
+        }
+    }
+
+    /***
+     * Wait for the worker to finish and stop another preparation from starting
+     * until release().
+     */
+    private void claim() {
+        boolean interrupted = false;
+        synchronized (busy) {
+            while (!busy.compareAndSet(false, true)) {
+                try {
+                    busy.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // preparations are short, so finish waiting
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void release() {
+        synchronized (busy) {
+            busy.set(false);
+            busy.notifyAll();
+        }
+    }
+
+    /***
+     * Rescale and draw snapshots into a DrawList. Runs on a worker thread, or on
+     * the drawing thread while no worker is running.
+     */
+    private static DrawList prepare(PlotData[] snapshots, ScreenTransform view, int width, int height,
+            int pixelDensity) {
+        RecordingRenderer recorder = new RecordingRenderer(width, height, pixelDensity);
+        for (PlotData snapshot : snapshots) {
+            snapshot.rescale(view.displayMinX, view.displayMaxX, view.displayMinY, view.displayMaxY,
+                    view.dataMinX, view.dataMaxX, view.dataMinY, view.dataMaxY);
+            snapshot.drawSelf(recorder, view);
+        }
+        return recorder.finish();
+    }
+
+    /***
+     * Get the current view, noting whether it changed since the last preparation.
+     */
+    private ScreenTransform checkView(Renderer window, Plot p) {
+        ScreenTransform view = p.getView();
+        if (view != lastView) {
+            lastView = view;
+            pending = true;
+        }
+        if (window.getWidth() != lastWidth || window.getHeight() != lastHeight
+                || window.getPixelDensity() != lastPixelDensity) {
+            lastWidth = window.getWidth();
+            lastHeight = window.getHeight();
+            lastPixelDensity = window.getPixelDensity();
+            pending = true;
+        }
+        return lastView;
+    }
+
+    /***
+     * Take a new snapshot of every dataset that changed since its last snapshot.
+     */
+    private void checkDatasets(List<PlotData> datasets) {
+        int n = datasets.size();
+        if (sources.length != n) {
+            sources = new PlotData[n];
+            snapshots = new PlotData[n];
+            versions = new int[n];
+            styleVersions = new int[n];
+            pending = true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            PlotData dataset = datasets.get(i);
+            if (dataset == sources[i] && dataset.getVersion() == versions[i]
+                    && dataset.getStyleVersion() == styleVersions[i]) {
+                continue;
+            }
+            snapshots[i] = dataset.snapshot(dataset == sources[i] ? snapshots[i] : null);
+            sources[i] = dataset;
+            versions[i] = dataset.getVersion();
+            styleVersions[i] = dataset.getStyleVersion();
+            pending = true;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package Plot;
+
+/***
+ * Drawing surface that plots draw themselves onto. Plot, PlotData and the axes
+ * only use these calls, so the same plot can be drawn into a Processing sketch
+ * (ProcessingRenderer) or into a plain int[] raster with no window at all
+ * (RasterRenderer).
+ *
+ * Colors are 32 bit ARGB ints (for example PlotData.BLACK). Coordinates are in
+ * screen pixels with the origin at the top left.
+ */
+public interface Renderer {
+    /***
+     * Shape kinds for beginShape(...). POLYLINE vertices are joined into one open
+     * line, LINES vertices are joined in pairs and POINTS vertices are drawn as
+     * dots the size of the stroke weight.
+     */
+    int POLYLINE = 0, LINES = 1, POINTS = 2;
+
+    /***
+     * Text alignments for textAlign(...).
+     */
+    int LEFT = 0, CENTER = 1, RIGHT = 2, TOP = 3, BASELINE = 4, BOTTOM = 5;
+
+    int getWidth();
+
+    int getHeight();
+
+    /***
+     * Get how many buffer pixels there are per screen pixel in each direction.
+     *
+     * @return the pixel density
+     */
+    int getPixelDensity();
+
+    /***
+     * Get the width of the pixel buffer returned by loadPixels().
+     *
+     * @return the buffer width in pixels
+     */
+    int getPixelWidth();
+
+    /***
+     * Get the height of the pixel buffer returned by loadPixels().
+     *
+     * @return the buffer height in pixels
+     */
+    int getPixelHeight();
+
+    /***
+     * Start drawing into a layer created by createLayer(...).
+     */
+    void beginDraw();
+
+    /***
+     * Finish drawing into a layer created by createLayer(...).
+     */
+    void endDraw();
+
+    /***
+     * Fill the whole surface with a color.
+     *
+     * @param color ARGB color
+     */
+    void background(int color);
+
+    /***
+     * Make the whole surface transparent.
+     */
+    void clear();
+
+    void fill(int color);
+
+    void noFill();
+
+    void stroke(int color);
+
+    void strokeWeight(float weight);
+
+    void line(float x1, float y1, float x2, float y2);
+
+    void rect(float x, float y, float width, float height);
+
+    /***
+     * Start a shape of the given kind; add vertices with vertex(...) and draw it
+     * with endShape().
+     *
+     * @param kind POLYLINE, LINES or POINTS
+     */
+    void beginShape(int kind);
+
+    void vertex(float x, float y);
+
+    void endShape();
+
+    void textSize(float size);
+
+    /***
+     * Set where text is drawn relative to the coordinates passed to text(...).
+     *
+     * @param alignX LEFT, CENTER or RIGHT
+     * @param alignY TOP, CENTER, BASELINE or BOTTOM
+     */
+    void textAlign(int alignX, int alignY);
+
+    float textWidth(String text);
+
+    /***
+     * Draw text in the fill color.
+     */
+    void text(String text, float x, float y);
+
+    /***
+     * Get the pixel buffer (getPixelWidth() by getPixelHeight() ARGB values,
+     * row by row) for writing into directly. Call updatePixels() when done.
+     *
+     * @return the pixel buffer
+     */
+    int[] loadPixels();
+
+    /***
+     * Apply changes made to the buffer returned by loadPixels().
+     */
+    void updatePixels();
+
+    /***
+     * Draw an image with its top left corner at (x, y), blending by its alpha.
+     * The image covers width / pixelDensity by height / pixelDensity screen
+     * pixels.
+     *
+     * @param pixels       width by height ARGB values, row by row
+     * @param width        image width in pixels
+     * @param height       image height in pixels
+     * @param pixelDensity image pixels per screen pixel in each direction
+     * @param x            x coordinate of the top left corner
+     * @param y            y coordinate of the top left corner
+     */
+    void image(int[] pixels, int width, int height, int pixelDensity, float x, float y);
+
+    /***
+     * Create a transparent offscreen layer of the same kind as this renderer,
+     * that can be drawn onto this renderer with drawLayer(...).
+     *
+     * @param width  layer width
+     * @param height layer height
+     * @return the new layer
+     */
+    Renderer createLayer(int width, int height);
+
+    /***
+     * Draw a layer created by createLayer(...) with its top left corner at (x, y).
+     */
+    void drawLayer(Renderer layer, float x, float y);
+
+    /***
+     * Release what a renderer or layer holds once it's no longer needed. It
+     * can't be drawn with afterwards.
+     */
+    void dispose();
+}
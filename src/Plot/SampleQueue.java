@@ -0,0 +1,102 @@
+package Plot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/***
+ * Bounded lock-free queue of (dataset id, x, y) samples with any number of
+ * producer threads and a single consumer. Samples are stored in primitive
+ * arrays, so offering one doesn't allocate.
+ *
+ * Each slot has a sequence number saying whether it is free for the producer
+ * claiming position p (sequence p) or holds the sample for position p
+ * (sequence p + 1); producers claim positions by compare-and-set on the tail.
+ */
+class SampleQueue {
+    /***
+     * Receives drained samples.
+     */
+    interface Sink {
+        void accept(int dataSetId, double x, double y);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] ids;
+    private final double[] xs, ys;
+    private final AtomicLong tail = new AtomicLong(); // next position to claim
+    private long head; // next position to read, only used by the consumer
+
+    /***
+     * Create a queue holding at least the given number of samples.
+     *
+     * @param minCapacity minimum number of samples
+     */
+    SampleQueue(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.ids = new int[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /***
+     * Add a sample without blocking. Safe to call from any thread.
+     *
+     * @return false if the queue is full and the sample was dropped
+     */
+    boolean offer(int dataSetId, double x, double y) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    ids[slot] = dataSetId;
+                    xs[slot] = x;
+                    ys[slot] = y;
+                    sequences.set(slot, pos + 1); // publishes the sample to the consumer
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // the consumer hasn't read this slot from the last lap yet
+            } else {
+                pos = tail.get(); // another producer claimed pos
+            }
+        }
+    }
+
+    /***
+     * Pass the samples offered so far to sink, oldest first. Samples from one
+     * producer keep their order. Only call from the consumer thread.
+     *
+     * @param sink receives the samples
+     * @return the number of samples drained
+     */
+    int drainTo(Sink sink) {
+        int count = 0;
+        // stop after one lap so producers can't keep the consumer here forever
+        while (count < capacity) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                break; // empty, or the producer of this slot hasn't finished writing
+            }
+            sink.accept(ids[slot], xs[slot], ys[slot]);
+            sequences.lazySet(slot, head + capacity); // free the slot for the next lap
+            head++;
+            count++;
+        }
+        return count;
+    }
+}
@@ -17,7 +17,7 @@ public class ScatterPlot extends Plot {
         this.width = plotToCopy.width;
         this.height = plotToCopy.height;
         this.settings = (HashMap<Setting, Boolean>) plotToCopy.settings.clone(); // =\
-        this.axes = plotToCopy.axes;
+        this.axes.copyStyleFrom(plotToCopy.axes); // own Axes, since they cache ticks for this plot's view
         setDataSets(plotToCopy);
         this.dataMinX = plotToCopy.dataMinX;
         this.dataMinY = plotToCopy.dataMinY;
@@ -74,14 +74,7 @@ public class ScatterPlot extends Plot {
      * @return the PlotData object representing the plotted data
      */
     public PlotData plot(double[] xData, double[] yData) {
-        List<Double> xList = MathUtils.toList(xData);
-        List<Double> yList = MathUtils.toList(yData);
-
-        PlotData data = new PlotData(xList, yList);
-        updateDataBoundsWith(data);
-        this.datasets.add(data);
-
-        return data;
+        return plot(new PlotData(xData, yData));
     }
 
     /**
@@ -92,7 +85,16 @@ public class ScatterPlot extends Plot {
      * @return The PlotData object representing the plotted data.
      */
     public PlotData plot(List<Double> xData, List<Double> yData) {
-        PlotData data = new PlotData(xData, yData);
+        return plot(new PlotData(xData, yData));
+    }
+
+    /**
+     * Adds an existing dataset (for example a MappedPlotData) to the scatter plot.
+     *
+     * @param data the dataset to add
+     * @return the same PlotData object, for chaining style calls
+     */
+    public PlotData plot(PlotData data) {
         updateDataBoundsWith(data);
         this.datasets.add(data);
 
@@ -0,0 +1,207 @@
+package Plot;
+
+/***
+ * Maps data coordinates to screen coordinates for one view of a plot. Used by
+ * PlotData to remember which view its screen coordinates were calculated for,
+ * and as the immutable position and view a dataset is drawn with, so drawing
+ * doesn't need the (mutable) Plot itself.
+ *
+ * For a plot's view the display y range runs from the bottom of the plot
+ * (displayMinY) to its top (displayMaxY).
+ */
+class ScreenTransform {
+    final double displayMinX, displayMaxX, displayMinY, displayMaxY;
+    final double dataMinX, dataMaxX, dataMinY, dataMaxY;
+
+    ScreenTransform(double displayMinX, double displayMaxX, double displayMinY, double displayMaxY,
+            double dataMinX, double dataMaxX, double dataMinY, double dataMaxY) {
+        this.displayMinX = displayMinX;
+        this.displayMaxX = displayMaxX;
+        this.displayMinY = displayMinY;
+        this.displayMaxY = displayMaxY;
+        this.dataMinX = dataMinX;
+        this.dataMaxX = dataMaxX;
+        this.dataMinY = dataMinY;
+        this.dataMaxY = dataMaxY;
+    }
+
+    /***
+     * Check whether this transform maps the same data bounds to the same display
+     * bounds as the given values.
+     *
+     * @return true if the transforms are the same
+     */
+    boolean matches(double displayMinX, double displayMaxX, double displayMinY, double displayMaxY,
+            double dataMinX, double dataMaxX, double dataMinY, double dataMaxY) {
+        return this.displayMinX == displayMinX && this.displayMaxX == displayMaxX
+                && this.displayMinY == displayMinY && this.displayMaxY == displayMaxY
+                && this.dataMinX == dataMinX && this.dataMaxX == dataMaxX
+                && this.dataMinY == dataMinY && this.dataMaxY == dataMaxY;
+    }
+
+    /***
+     * Get the screen x coordinate (truncated to a whole pixel) for data value x.
+     *
+     * @param x data x value
+     * @return screen x coordinate
+     */
+    float screenX(double x) {
+        return (int) Plot.map(x, dataMinX, dataMaxX, displayMinX, displayMaxX);
+    }
+
+    /***
+     * Get the screen y coordinate (truncated to a whole pixel) for data value y.
+     *
+     * @param y data y value
+     * @return screen y coordinate
+     */
+    float screenY(double y) {
+        return (int) Plot.map(y, dataMinY, dataMaxY, displayMinY, displayMaxY);
+    }
+
+    float getLeftX() {
+        return (float) displayMinX;
+    }
+
+    float getRightX() {
+        return (float) displayMaxX;
+    }
+
+    float getTopY() {
+        return (float) displayMaxY;
+    }
+
+    float getBottomY() {
+        return (float) displayMinY;
+    }
+
+    /***
+     * Check if the screen point (x, y) is inside the plot.
+     *
+     * @param x screen x coordinate
+     * @param y screen y coordinate
+     * @return true if the point is inside, false otherwise
+     */
+    boolean isInBounds(float x, float y) {
+        if (x < getLeftX() || x > getRightX())
+            return false;
+        if (y < getTopY() || y > getBottomY())
+            return false;
+        return true;
+    }
+
+    /***
+     * Clip the screen line segment (x1, y1) to (x2, y2) to the plot, like
+     * Plot.clipLine(x1, y1, x2, y2, out).
+     *
+     * @return true if some of the line is inside the plot (and out holds it)
+     */
+    boolean clipLine(int x1, int y1, int x2, int y2, int[] out) {
+        return clipLine(getLeftX(), getTopY(), getRightX(), getBottomY(), x1, y1, x2, y2, out);
+    }
+
+    // ===== constants for clipping algorithm ========
+    private static final int INSIDE = 0; // 0000
+    private static final int LEFT = 1; // 0001
+    private static final int RIGHT = 2; // 0010
+    private static final int BOTTOM = 4; // 0100
+    private static final int TOP = 8; // 1000
+    // ===== constants for clipping algorithm ========
+
+    /**
+     * Clips the line segment (x1, y1) to (x2, y2) to the rectangle with the given
+     * edges, using the Cohen-Sutherland line clipping algorithm. More info here:
+     * https://www.geeksforgeeks.org/line-clipping-set-1-cohen-sutherland-algorithm/
+     *
+     * @param out array of length 4 to receive the clipped coordinates [x1, y1,
+     *            x2, y2]
+     * @return true if some of the line is inside the rectangle, false if it is
+     *         entirely outside (out is left unchanged).
+     */
+    static boolean clipLine(float leftX, float topY, float rightX, float bottomY, int x1, int y1, int x2, int y2,
+            int[] out) {
+        int windowHeight = (int) (Math.abs(bottomY - topY));
+        int windowWidth = (int) (Math.abs(rightX - leftX));
+
+        int code1 = computeCode(x1, y1, leftX, topY, windowWidth, windowHeight);
+        int code2 = computeCode(x2, y2, leftX, topY, windowWidth, windowHeight);
+        boolean accept = false;
+
+        while (true) {
+            if ((code1 == 0) && (code2 == 0)) {
+                accept = true;
+                break;
+            } else if ((code1 & code2) != 0) {
+                break;
+            } else {
+                int codeOut;
+                int x, y;
+
+                if (code1 != 0) {
+                    codeOut = code1;
+                } else {
+                    codeOut = code2;
+                }
+
+                if ((codeOut & TOP) != 0) {
+                    x = (int) (x1 + (x2 - x1) * (topY - y1) / (y2 - y1));
+                    y = (int) topY;
+                } else if ((codeOut & BOTTOM) != 0) {
+                    x = (int) (x1 + (x2 - x1) * (topY + windowHeight - y1) / (y2 - y1));
+                    y = (int) (topY + windowHeight);
+                } else if ((codeOut & RIGHT) != 0) {
+                    y = (int) (y1 + (y2 - y1) * (leftX + windowWidth - x1) / (x2 - x1));
+                    x = (int) (leftX + windowWidth);
+                } else if ((codeOut & LEFT) != 0) {
+                    y = (int) (y1 + (y2 - y1) * (leftX - x1) / (x2 - x1));
+                    x = (int) leftX;
+                } else {
+                    x = 0;
+                    y = 0;
+                }
+
+                if (codeOut == code1) {
+                    x1 = x;
+                    y1 = y;
+                    code1 = computeCode(x1, y1, leftX, topY, windowWidth, windowHeight);
+                } else {
+                    x2 = x;
+                    y2 = y;
+                    code2 = computeCode(x2, y2, leftX, topY, windowWidth, windowHeight);
+                }
+            }
+        }
+
+        if (accept) {
+            out[0] = x1;
+            out[1] = y1;
+            out[2] = x2;
+            out[3] = y2;
+        }
+        return accept;
+    }
+
+    /**
+     * Computes the code for a given point (x, y) relative to the clipping
+     * rectangle. The code is a combination of INSIDE, LEFT, RIGHT, TOP, and
+     * BOTTOM flags, indicating the position of the point with respect to the
+     * rectangle's edges.
+     */
+    private static int computeCode(int x, int y, float leftX, float topY, int windowWidth, int windowHeight) {
+        int code = INSIDE;
+
+        if (x < leftX) {
+            code |= LEFT;
+        } else if (x > leftX + windowWidth) {
+            code |= RIGHT;
+        }
+
+        if (y < topY) {
+            code |= TOP;
+        } else if (y > topY + windowHeight) {
+            code |= BOTTOM;
+        }
+
+        return code;
+    }
+}
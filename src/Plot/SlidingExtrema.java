@@ -0,0 +1,169 @@
+package Plot;
+
+/***
+ * Tracks the exact min and max of a sliding window of values in amortized O(1)
+ * per update. Each extreme is kept in a monotonic deque of candidates: a value
+ * is dropped from the max deque as soon as a newer, larger value arrives (and
+ * vice versa for min), since it can never be the max of any later window.
+ *
+ * Values must be pushed and evicted in the same order as the window they
+ * describe (oldest evicted first).
+ *
+ * Copies share their deques' arrays (copy-on-write), so copying a tracker is
+ * O(1) and whichever copy pushes first takes its own arrays.
+ */
+class SlidingExtrema {
+    private final Deque minDeque;
+    private final Deque maxDeque;
+    private long nextSeq; // sequence number of the next value pushed
+    private long oldestSeq; // sequence number of the oldest value in the window
+
+    /***
+     * Create a tracker for a window holding at most capacity values.
+     *
+     * @param capacity max number of values in the window at once
+     */
+    SlidingExtrema(int capacity) {
+        this.minDeque = new Deque(capacity);
+        this.maxDeque = new Deque(capacity);
+    }
+
+    private SlidingExtrema(SlidingExtrema toCopy) {
+        this.minDeque = toCopy.minDeque.copy();
+        this.maxDeque = toCopy.maxDeque.copy();
+        this.nextSeq = toCopy.nextSeq;
+        this.oldestSeq = toCopy.oldestSeq;
+    }
+
+    /***
+     * Create an independent copy of this tracker.
+     *
+     * @return the copy
+     */
+    SlidingExtrema copy() {
+        return new SlidingExtrema(this);
+    }
+
+    /***
+     * Add a new value to the end of the window.
+     *
+     * @param val the value being added
+     */
+    void push(double val) {
+        while (!minDeque.isEmpty() && minDeque.lastValue() >= val) {
+            minDeque.removeLast();
+        }
+        while (!maxDeque.isEmpty() && maxDeque.lastValue() <= val) {
+            maxDeque.removeLast();
+        }
+        minDeque.addLast(nextSeq, val);
+        maxDeque.addLast(nextSeq, val);
+        nextSeq++;
+    }
+
+    /***
+     * Remove the oldest value from the window.
+     */
+    void evict() {
+        if (!minDeque.isEmpty() && minDeque.firstSeq() == oldestSeq) {
+            minDeque.removeFirst();
+        }
+        if (!maxDeque.isEmpty() && maxDeque.firstSeq() == oldestSeq) {
+            maxDeque.removeFirst();
+        }
+        oldestSeq++;
+    }
+
+    void clear() {
+        minDeque.clear();
+        maxDeque.clear();
+        nextSeq = 0;
+        oldestSeq = 0;
+    }
+
+    boolean isEmpty() {
+        return nextSeq == oldestSeq;
+    }
+
+    double min() {
+        return minDeque.firstValue();
+    }
+
+    double max() {
+        return maxDeque.firstValue();
+    }
+
+    /***
+     * Fixed-capacity double-ended queue of (sequence number, value) pairs stored
+     * in primitive circular arrays.
+     */
+    private static class Deque {
+        private long[] seqs;
+        private double[] vals;
+        private int head, size;
+        private boolean shared; // arrays are shared with a copy; copy them before writing
+
+        Deque(int capacity) {
+            this.seqs = new long[capacity];
+            this.vals = new double[capacity];
+        }
+
+        Deque copy() {
+            Deque copy = new Deque(0);
+            copy.seqs = seqs;
+            copy.vals = vals;
+            copy.head = head;
+            copy.size = size;
+            copy.shared = true;
+            this.shared = true;
+            return copy;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void addLast(long seq, double val) {
+            if (shared) {
+                seqs = seqs.clone();
+                vals = vals.clone();
+                shared = false;
+            }
+            int i = indexOf(size);
+            seqs[i] = seq;
+            vals[i] = val;
+            size++;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void removeFirst() {
+            head = indexOf(1);
+            size--;
+        }
+
+        long firstSeq() {
+            return seqs[head];
+        }
+
+        double firstValue() {
+            return vals[head];
+        }
+
+        double lastValue() {
+            return vals[indexOf(size - 1)];
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        private int indexOf(int i) {
+            int index = head + i;
+            return (index >= seqs.length) ? index - seqs.length : index;
+        }
+    }
+}
@@ -3,11 +3,84 @@ package Plot;
 import java.util.ArrayList;
 
 public class TimeSeriesPlot extends Plot {
+    private static final int DEFAULT_INGEST_CAPACITY = 4096;
+
     private int dataWidth;
+    private final SampleQueue ingest; // samples offered from other threads, added on the next draw
+    private int[] drainVersions = new int[0]; // dataset versions before the last drain
 
     public TimeSeriesPlot(int x1, int y1, int x2, int y2, int dataPointWidth) {
+        this(x1, y1, x2, y2, dataPointWidth, DEFAULT_INGEST_CAPACITY);
+    }
+
+    /***
+     * Create a time series plot that can queue up to ingestCapacity samples
+     * offered from other threads between draws.
+     *
+     * @param x1             x coord of upper left corner
+     * @param y1             y coord of upper left corner
+     * @param x2             x coord of lower right corner
+     * @param y2             y coord of lower right corner
+     * @param dataPointWidth width of the window; each dataset keeps its last
+     *                       dataPointWidth - 1 points
+     * @param ingestCapacity number of samples offer(...) can queue between draws
+     */
+    public TimeSeriesPlot(int x1, int y1, int x2, int y2, int dataPointWidth, int ingestCapacity) {
         super(x1, y1, x2, y2);
         this.dataWidth = dataPointWidth;
+        this.ingest = new SampleQueue(ingestCapacity);
+    }
+
+    /***
+     * Queue data point (x, y) for dataset index from any thread, without
+     * blocking. Queued points are added (as if by plot(dataSetId, x, y)) at the
+     * start of the next draw, on the drawing thread, so producers never touch
+     * the datasets while they are being drawn. Points from one thread are added
+     * in the order they were offered.
+     *
+     * @param dataSetId dataset to add to (a new dataset is created if invalid)
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @return false if the queue was full and the point was dropped
+     */
+    public boolean offer(int dataSetId, double x, double y) {
+        return ingest.offer(dataSetId, x, y);
+    }
+
+    /***
+     * Add the points queued by offer(...) to their datasets. Called at the start
+     * of every draw; only call it from the thread that draws the plot. Datasets
+     * that have been published are published again if points were added to
+     * them, so the new points are drawn.
+     *
+     * @return the number of points added
+     */
+    public int drainOffered() {
+        int n = datasets.size();
+        if (drainVersions.length < n) {
+            drainVersions = new int[Math.max(n, 2 * drainVersions.length)];
+        }
+        for (int i = 0; i < n; i++) {
+            drainVersions[i] = datasets.get(i).getVersion();
+        }
+
+        int count = ingest.drainTo(this::addPoint);
+        if (count > 0) {
+            for (int i = 0; i < n; i++) {
+                PlotData dataset = datasets.get(i);
+                if (dataset.isPublished() && dataset.getVersion() != drainVersions[i]) {
+                    dataset.publish();
+                }
+            }
+            updateWindowBounds();
+        }
+        return count;
+    }
+
+    @Override
+    public void draw(Renderer window) {
+        drainOffered();
+        super.draw(window);
     }
 
     /***
@@ -37,12 +110,21 @@ public class TimeSeriesPlot extends Plot {
      * @return
      */
     public PlotData plot(int dataSetId, double x, double y) {
+        PlotData data = addPoint(dataSetId, x, y);
+        updateWindowBounds();
+        return data;
+    }
+
+    /***
+     * Add data point (x, y) to dataset index without updating the plot bounds.
+     */
+    private PlotData addPoint(int dataSetId, double x, double y) {
         PlotData data;
 
         if (dataSetId >= 0 && dataSetId < datasets.size()) {
             data = datasets.get(dataSetId);
         } else {
-            data = new PlotData();
+            data = new PlotData().setMaxSize(Math.max(1, this.dataWidth - 1));
             this.datasets.add(data);
         }
 
@@ -53,27 +135,62 @@ public class TimeSeriesPlot extends Plot {
             }
         }
 
-        data.add(x, y);
+        data.add(x, y); // evicts the oldest point once the window is full
+        return data;
+    }
 
-        if (data.size() >= this.dataWidth) {
-            data.remove(0);
-            shiftXBounds(data);
-        }
+    /***
+     * Set the plot bounds to the exact extent of the points currently in the
+     * window of each dataset, so the axes shrink again once an outlier scrolls
+     * out. Datasets track their own window min and max incrementally, so this
+     * costs O(number of datasets) per sample rather than a scan of the window.
+     * A zero-size extent (one sample, or a flat series) is padded on both sides.
+     */
+    private void updateWindowBounds() {
+        boolean first = true;
+        for (PlotData dataset : datasets) {
+            dataset = dataset.getPublished();
+            if (dataset.size() == 0)
+                continue;
 
-        if (!settings.containsKey(Setting.freeze_y_scale)) {
-            updateYBoundsWith(data);
+            if (!settings.containsKey(Setting.freeze_x_scale)) {
+                dataMinX = first ? dataset.getDataMinX() : Math.min(dataMinX, dataset.getDataMinX());
+                dataMaxX = first ? dataset.getDataMaxX() : Math.max(dataMaxX, dataset.getDataMaxX());
+            }
+            if (!settings.containsKey(Setting.freeze_y_scale)) {
+                dataMinY = first ? dataset.getDataMinY() : Math.min(dataMinY, dataset.getDataMinY());
+                dataMaxY = first ? dataset.getDataMaxY() : Math.max(dataMaxY, dataset.getDataMaxY());
+            }
+            first = false;
         }
 
-        return data;
+        // a single sample or a flat series has no extent; give it some so it can still be mapped to the screen
+        if (!first && !settings.containsKey(Setting.freeze_x_scale) && dataMinX == dataMaxX) {
+            double pad = padding(dataMinX);
+            dataMinX -= pad;
+            dataMaxX += pad;
+        }
+        if (!first && !settings.containsKey(Setting.freeze_y_scale) && dataMinY == dataMaxY) {
+            double pad = padding(dataMinY);
+            dataMinY -= pad;
+            dataMaxY += pad;
+        }
     }
 
-    // TODO: decide if this needs to be public
-    private void shiftXBounds(PlotData data) {
-        this.dataMinX = data.getDataX(0);
-        this.dataMaxX = data.getDataX(data.size() - 1);
+    /***
+     * Get how far to extend a zero-size range around v: half a unit, or more if
+     * v is so large that half a unit would be lost to rounding.
+     */
+    private static double padding(double v) {
+        return Math.max(0.5, Math.abs(v) * 1e-3);
+    }
 
-        data.setDataMinX(dataMinX);
-        data.setDataMaxX(dataMaxX);
+    /***
+     * Get the width of the window (one more than the number of points kept per
+     * dataset).
+     */
+    int getDataPointWidth() {
+        return dataWidth;
     }
 
     public ArrayList<PlotData> getDatasets() {
@@ -0,0 +1,93 @@
+package Tests;
+
+import Plot.RasterRenderer;
+import Plot.Renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * RasterRenderer that also keeps a record of the shapes, text and layers drawn
+ * with it, so tests can check how a plot was drawn and not only how it looks.
+ */
+public class CountingRenderer extends RasterRenderer {
+    final List<Integer> shapeKinds = new ArrayList<>();
+    final List<float[]> shapes = new ArrayList<>(); // vertices of each shape, x and y interleaved
+    final List<CountingRenderer> layers = new ArrayList<>(); // every layer created by createLayer
+    int lines, texts, textWidths, layersDrawn;
+
+    private float[] vertices = new float[64];
+    private int numVertices;
+    private boolean inText; // RasterRenderer.text measures aligned text itself
+
+    public CountingRenderer(int width, int height) {
+        super(width, height);
+    }
+
+    /***
+     * Forget everything recorded so far (but not the layers created).
+     */
+    void reset() {
+        shapeKinds.clear();
+        shapes.clear();
+        lines = texts = textWidths = layersDrawn = 0;
+    }
+
+    @Override
+    public void line(float x1, float y1, float x2, float y2) {
+        lines++;
+        super.line(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void beginShape(int kind) {
+        shapeKinds.add(kind);
+        numVertices = 0;
+        super.beginShape(kind);
+    }
+
+    @Override
+    public void vertex(float x, float y) {
+        if (numVertices + 2 > vertices.length) {
+            vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+        }
+        vertices[numVertices++] = x;
+        vertices[numVertices++] = y;
+        super.vertex(x, y);
+    }
+
+    @Override
+    public void endShape() {
+        shapes.add(Arrays.copyOf(vertices, numVertices));
+        super.endShape();
+    }
+
+    @Override
+    public float textWidth(String text) {
+        if (!inText)
+            textWidths++;
+        return super.textWidth(text);
+    }
+
+    @Override
+    public void text(String text, float x, float y) {
+        texts++;
+        inText = true;
+        super.text(text, x, y);
+        inText = false;
+    }
+
+    @Override
+    public Renderer createLayer(int width, int height) {
+        CountingRenderer layer = new CountingRenderer(width, height);
+        layers.add(layer);
+        return layer;
+    }
+
+    @Override
+    public void drawLayer(Renderer layer, float x, float y) {
+        layersDrawn++;
+        super.drawLayer(layer, x, y);
+    }
+}
@@ -0,0 +1,128 @@
+package Tests;
+
+import Plot.CsvLoader;
+import Plot.PlotData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CsvLoaderTest {
+    static final double acceptableDelta = 0.0001;
+    private Path file;
+
+    @After
+    public void cleanup() throws IOException {
+        if (file != null)
+            Files.deleteIfExists(file);
+    }
+
+    private Path write(String suffix, String contents) throws IOException {
+        file = Files.createTempFile("plotdata", suffix);
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testColumnsByHeader() throws IOException {
+        write(".csv", "id,\"time\",value\r\n1,0.5,-2\r\n2,1.5,8e1\r\n3,\"2.5\",3.25\r\n");
+        PlotData data = new CsvLoader(file).columns("time", "value").load();
+        assertEquals(3, data.size());
+        assertEquals(1.5, data.getDataX(1), acceptableDelta);
+        assertEquals(80.0, data.getDataY(1), acceptableDelta);
+        assertEquals(2.5, data.getDataX(2), acceptableDelta);
+        assertEquals(-2.0, data.getDataMinY(), acceptableDelta);
+        assertEquals(80.0, data.getDataMaxY(), acceptableDelta);
+    }
+
+    @Test
+    public void testTsvByIndex() throws IOException {
+        write(".tsv", "1\t2\t3\n4\t5\t6\n\n7\t8\t9");
+        PlotData data = new CsvLoader(file).columns(2, 0).load();
+        assertEquals(3, data.size());
+        assertEquals(3.0, data.getDataX(0), acceptableDelta);
+        assertEquals(4.0, data.getDataY(1), acceptableDelta);
+        assertEquals(9.0, data.getDataX(2), acceptableDelta);
+    }
+
+    @Test
+    public void testSkipsBadRows() throws IOException {
+        write(".csv", "x;y\n1;2\n2;n/a\n3\n4;NaN\n5;6\n");
+        PlotData data = new CsvLoader(file).delimiter(';').header(true).load();
+        assertEquals(3, data.size());
+        assertEquals(4.0, data.getDataX(1), acceptableDelta);
+        assertTrue(Double.isNaN(data.getDataY(1)));
+        assertEquals(6.0, data.getDataY(2), acceptableDelta);
+    }
+
+    @Test
+    public void testQuotedDelimiters() throws IOException {
+        write(".csv", "\"name, full\",x,y\n\"Smith, J\",1,2\n\"say \"\"a,b\"\"\",3,4\nplain,\"5\",\"6\"\n");
+        PlotData data = new CsvLoader(file).columns("x", "y").load();
+        assertEquals(3, data.size());
+        assertEquals(1.0, data.getDataX(0), acceptableDelta);
+        assertEquals(2.0, data.getDataY(0), acceptableDelta);
+        assertEquals(3.0, data.getDataX(1), acceptableDelta);
+        assertEquals(4.0, data.getDataY(1), acceptableDelta);
+        assertEquals(6.0, data.getDataY(2), acceptableDelta);
+    }
+
+    @Test
+    public void testOnlyDecimalsAreNumbers() throws IOException {
+        write(".csv", "1,\t2 \n2,1d\n3,2f\n4,0x1p3\n5,1e\n \t6\t,-Infinity\n7,\" NaN\"\n");
+        PlotData data = new CsvLoader(file).load();
+        assertEquals(3, data.size());
+        assertEquals(1.0, data.getDataX(0), acceptableDelta);
+        assertEquals(2.0, data.getDataY(0), acceptableDelta);
+        assertEquals(6.0, data.getDataX(1), acceptableDelta);
+        assertEquals(Double.NEGATIVE_INFINITY, data.getDataY(1), 0);
+        assertTrue(Double.isNaN(data.getDataY(2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingColumn() throws IOException {
+        write(".csv", "a,b\n1,2\n");
+        new CsvLoader(file).columns("a", "c").load();
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingColumnInHeaderOnly() throws IOException {
+        write(".csv", "a,b");
+        new CsvLoader(file).columns("a", "c").load();
+    }
+
+    @Test
+    public void testHeaderOnly() throws IOException {
+        write(".csv", "a,b");
+        assertEquals(0, new CsvLoader(file).columns("b", "a").load().size());
+    }
+
+    @Test
+    public void testMatchesParseDouble() throws IOException {
+        // big enough that lines cross the read buffer's boundaries
+        Random random = new Random(7);
+        int n = 100000;
+        String[] xs = new String[n], ys = new String[n];
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            xs[i] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+            ys[i] = String.format(Locale.ROOT, "%.6f", random.nextDouble() * 1000 - 500);
+            csv.append(xs[i]).append(',').append(ys[i]).append('\n');
+        }
+        write(".csv", csv.toString());
+
+        PlotData data = new CsvLoader(file).load();
+        assertEquals(n, data.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(Double.parseDouble(xs[i]), data.getDataX(i), 0);
+            assertEquals(Double.parseDouble(ys[i]), data.getDataY(i), 0);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Tests;
+
+import Plot.MappedPlotData;
+import Plot.PlotData;
+import Plot.ScatterPlot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MappedPlotDataTest {
+    static final double acceptableDelta = 0.0001;
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("plotdata", ".bin");
+        double[] x = { 1.0, 2.0, 3.0, 4.0 };
+        double[] y = { -2.0, 8.0, 3.0, 5.0 };
+        MappedPlotData.write(file, x, y);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testReadBack() throws IOException {
+        MappedPlotData data = new MappedPlotData(file);
+        assertEquals(4, data.size());
+        assertEquals(3.0, data.getDataX(2), acceptableDelta);
+        assertEquals(5.0, data.getDataY(3), acceptableDelta);
+        assertEquals(-2.0, data.getDataMinY(), acceptableDelta);
+        assertEquals(8.0, data.getDataMaxY(), acceptableDelta);
+        assertEquals(4.0, data.getDataMaxX(), acceptableDelta);
+    }
+
+    @Test
+    public void testReadOnly() throws IOException {
+        MappedPlotData data = new MappedPlotData(file);
+        data.add(10.0, 10.0);
+        data.remove(0);
+        assertEquals(4, data.size());
+        assertEquals(1.0, data.getDataX(0), acceptableDelta);
+    }
+
+    @Test
+    public void testRescale() throws IOException {
+        MappedPlotData data = new MappedPlotData(file);
+        data.rescale(0, 100, 100, 0, 0, 4, 0, 10);
+        assertEquals(50.0, data.getDisplayX(1), acceptableDelta);
+        assertEquals(20.0, data.getDisplayY(1), acceptableDelta);
+        assertEquals(4, data.getScreenXCoords().size());
+    }
+
+    @Test
+    public void testPlotInScatterPlot() throws IOException {
+        ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+        PlotData data = plot.plot(new MappedPlotData(file));
+        assertTrue(plot.getDatasets().contains(data));
+        assertEquals(8.0, plot.getDataViewMaxY(), acceptableDelta);
+
+        ScatterPlot copy = new ScatterPlot(plot);
+        assertEquals(5.0, copy.getDatasets().get(0).getDataY(3), acceptableDelta);
+    }
+
+    @Test
+    public void testMagic() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals("PLTD", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAPlotDataFile() throws IOException {
+        Files.write(file, new byte[128]);
+        new MappedPlotData(file);
+    }
+}
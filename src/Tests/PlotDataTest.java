@@ -1,6 +1,17 @@
 package Tests;
 
+import Plot.MathUtils;
 import Plot.PlotData;
+import Plot.RasterRenderer;
+import Plot.ScatterPlot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -77,5 +88,617 @@ public class PlotDataTest {
         assertEquals(PlotData.Style.LINE, plotData.getStyle());
         plotData.style("--");
         assertEquals(PlotData.Style.DASH, plotData.getStyle());
+        plotData.style(",");
+        assertEquals(PlotData.Style.PIXEL, plotData.getStyle());
+        plotData.style("density");
+        assertEquals(PlotData.Style.DENSITY, plotData.getStyle());
+    }
+
+    @Test
+    public void testPixelStyle() {
+        ScatterPlot plot = new ScatterPlot(10, 10, 90, 70);
+        plot.zoomViewTo(0, 0, 5, 5);
+        double[] x = { 1.5, 2.5, 3.5, 0.1 };
+        double[] y = { 1.5, 3.5, 2.5, 0.1 };
+        PlotData data = plot.plot(x, y).style(",").strokeColor("blue");
+        RasterRenderer renderer = new RasterRenderer(100, 80);
+        plot.draw(renderer);
+
+        int[] pixels = renderer.getPixels();
+        for (int i = 0; i < x.length; i++) {
+            int px = (int) plot.getScreenXFor(x[i]);
+            int py = (int) plot.getScreenYFor(y[i]);
+            assertEquals(PlotData.BLUE, pixels[py * 100 + px]);
+            assertNotEquals(PlotData.BLUE, pixels[py * 100 + px + 1]); // one pixel per point
+        }
+
+        // wider markers are squares clipped to the plot
+        data.strokeWeight(9);
+        renderer = new RasterRenderer(100, 80);
+        plot.draw(renderer);
+        pixels = renderer.getPixels();
+        int px = (int) plot.getScreenXFor(1.5), py = (int) plot.getScreenYFor(1.5);
+        assertEquals(PlotData.BLUE, pixels[(py - 4) * 100 + px - 4]);
+        assertEquals(PlotData.BLUE, pixels[(py + 4) * 100 + px + 4]);
+        assertNotEquals(PlotData.BLUE, pixels[(py + 5) * 100 + px]);
+        for (int row = 0; row < 80; row++) {
+            for (int column = 0; column < 100; column++) {
+                boolean inPlot = column >= 10 && column <= 90 && row >= 10 && row <= 70;
+                if (!inPlot) {
+                    assertNotEquals(PlotData.BLUE, pixels[row * 100 + column]);
+                }
+            }
+        }
+        assertEquals(PlotData.BLUE, pixels[70 * 100 + 10]); // the marker at (0.1, 0.1) reaches the corner
+    }
+
+    @Test
+    public void testDensityStyle() {
+        ScatterPlot plot = new ScatterPlot(10, 10, 90, 70);
+        plot.zoomViewTo(0, 0, 5, 5);
+        plot.plot(new double[] { 1.5, 1.5, 1.5, 1.5, 3.5 }, new double[] { 1.5, 1.5, 1.5, 1.5, 3.5 })
+                .style("density").strokeColor("red");
+        RasterRenderer renderer = new RasterRenderer(100, 80); // transparent, so alpha is the density
+        plot.draw(renderer);
+
+        int[] pixels = renderer.getPixels();
+        assertEquals(0xFFFF0000, pixels[pixelIndex(plot, 1.5, 1.5)]); // the densest pixel is opaque
+        assertEquals(((48 + 207 / 4) << 24) | 0xFF0000, pixels[pixelIndex(plot, 3.5, 3.5)]); // a quarter as dense
+        assertEquals(0, pixels[pixelIndex(plot, 1.5, 3.5)]);
+    }
+
+    @Test
+    public void testDensityRebinsWhenViewOrDataChanges() {
+        ScatterPlot plot = new ScatterPlot(10, 10, 90, 70);
+        plot.zoomViewTo(0, 0, 5, 5);
+        PlotData data = new PlotData().style("density").strokeColor("red");
+        data.add(1.5, 1.5);
+        plot.plot(data);
+        RasterRenderer renderer = new RasterRenderer(100, 80);
+        plot.draw(renderer);
+        assertEquals(0xFFFF0000, renderer.getPixels()[pixelIndex(plot, 1.5, 1.5)]);
+        assertEquals(0, renderer.getPixels()[pixelIndex(plot, 2.5, 2.5)]);
+
+        data.add(2.5, 2.5);
+        renderer = new RasterRenderer(100, 80);
+        plot.draw(renderer);
+        assertEquals(0xFFFF0000, renderer.getPixels()[pixelIndex(plot, 1.5, 1.5)]);
+        assertEquals(0xFFFF0000, renderer.getPixels()[pixelIndex(plot, 2.5, 2.5)]);
+
+        plot.zoomViewTo(1, 1, 6, 6); // pan so the points move on screen
+        renderer = new RasterRenderer(100, 80);
+        plot.draw(renderer);
+        assertEquals(0, renderer.getPixels()[pixelIndex(plot, 0.5, 0.5)]);
+        assertEquals(0xFFFF0000, renderer.getPixels()[pixelIndex(plot, 1.5, 1.5)]);
+        assertEquals(0xFFFF0000, renderer.getPixels()[pixelIndex(plot, 2.5, 2.5)]);
+    }
+
+    private static int pixelIndex(ScatterPlot plot, double x, double y) {
+        return (int) plot.getScreenYFor(y) * 100 + (int) plot.getScreenXFor(x);
+    }
+
+    @Test
+    public void testArrayConstructor() {
+        double[] x = { 1.0, 2.0, 3.0 };
+        double[] y = { 4.0, 5.0, 6.0 };
+        PlotData plotData = new PlotData(x, y);
+        x[0] = 100.0; // data should be copied, not aliased
+        assertEquals(3, plotData.size());
+        assertEquals(1.0, plotData.getDataX(0), 0.001);
+        assertEquals(6.0, plotData.getDataY(2), 0.001);
+        assertEquals(6.0, plotData.getDataMaxY(), 0.001);
+    }
+
+    @Test
+    public void testAddManyPoints() {
+        PlotData plotData = new PlotData();
+        for (int i = 0; i < 1000; i++) {
+            plotData.add(i, 2 * i);
+        }
+        assertEquals(1000, plotData.size());
+        assertEquals(999.0, plotData.getDataX(999), 0.001);
+        assertEquals(1998.0, plotData.getDataY(999), 0.001);
+        assertEquals(1998.0, plotData.getDataMaxY(), 0.001);
+    }
+
+    @Test
+    public void testRescale() {
+        PlotData plotData = new PlotData(new double[] { 0.0, 5.0, 10.0 }, new double[] { 0.0, 5.0, 10.0 });
+        plotData.rescale(0, 100, 100, 0, 0, 10, 0, 10);
+        assertEquals(3, plotData.getScreenXCoords().size());
+        assertEquals(50.0, plotData.getDisplayX(1), 0.001);
+        assertEquals(50.0, plotData.getDisplayY(1), 0.001);
+        assertEquals(100, (int) plotData.getScreenXCoords().get(2));
+        assertEquals(0, (int) plotData.getScreenYCoords().get(2));
+    }
+
+    @Test
+    public void testSetMaxSize() {
+        PlotData plotData = new PlotData().setMaxSize(3);
+        for (int i = 0; i < 5; i++) {
+            plotData.add(i, 10 * i);
+        }
+        assertEquals(3, plotData.size());
+        assertEquals(3, plotData.getMaxSize());
+        assertTrue(plotData.isFull());
+        assertEquals(2.0, plotData.getDataX(0), 0.001);
+        assertEquals(40.0, plotData.getDataY(2), 0.001);
+
+        plotData.remove(1);
+        assertEquals(2, plotData.size());
+        assertEquals(2.0, plotData.getDataX(0), 0.001);
+        assertEquals(4.0, plotData.getDataX(1), 0.001);
+    }
+
+    @Test
+    public void testMaxSizeBoundsTrackWindow() {
+        PlotData plotData = new PlotData().setMaxSize(4);
+        double[] ys = { 5.0, -3.0, 1.0, 2.0, 0.5, 0.25, 7.0 };
+        for (int i = 0; i < ys.length; i++) {
+            plotData.add(i, ys[i]);
+        }
+        // window now holds y = 2.0, 0.5, 0.25, 7.0
+        assertEquals(0.25, plotData.getDataMinY(), 0.001);
+        assertEquals(7.0, plotData.getDataMaxY(), 0.001);
+        assertEquals(3.0, plotData.getDataMinX(), 0.001);
+        assertEquals(6.0, plotData.getDataMaxX(), 0.001);
+
+        plotData.remove(0);
+        plotData.remove(2);
+        assertEquals(0.25, plotData.getDataMinY(), 0.001);
+        assertEquals(0.5, plotData.getDataMaxY(), 0.001);
+    }
+
+    @Test
+    public void testWrap() {
+        double[] x = { 1.0, 2.0, 3.0 };
+        double[] y = { 4.0, 5.0, 6.0 };
+        PlotData plotData = PlotData.wrap(x, y);
+        assertEquals(3, plotData.size());
+
+        y[1] = 50.0;
+        assertEquals(50.0, plotData.getDataY(1), 0.001);
+        assertEquals(6.0, plotData.getDataMaxY(), 0.001);
+
+        plotData.dataChanged();
+        assertEquals(50.0, plotData.getDataMaxY(), 0.001);
+        assertTrue(plotData.isDirty());
+    }
+
+    @Test
+    public void testWrapAddDoesNotModifyCallerArrays() {
+        double[] x = { 1.0, 2.0, 3.0 };
+        double[] y = { 4.0, 5.0, 6.0 };
+        PlotData plotData = PlotData.wrap(x, y);
+        plotData.remove(0);
+        plotData.add(7.0, 8.0);
+        assertEquals(3, plotData.size());
+        assertEquals(7.0, plotData.getDataX(2), 0.001);
+        assertArrayEquals(new double[] { 1.0, 2.0, 3.0 }, x, 0.001);
+
+        x[2] = 100.0; // no longer shared after a write
+        assertEquals(3.0, plotData.getDataX(1), 0.001);
+    }
+
+    @Test
+    public void testWrapMismatchedLengths() {
+        assertNull(PlotData.wrap(new double[2], new double[3]));
+    }
+
+    @Test
+    public void testUpdate() {
+        PlotData plotData = new PlotData(new double[] { 1.0, 2.0, 3.0 }, new double[] { 4.0, 5.0, 6.0 });
+        plotData.style("-");
+        plotData.update(new double[] { -1.0, 2.0, 3.0 });
+        assertEquals(3, plotData.size());
+        assertEquals(-1.0, plotData.getDataY(0), 0.001);
+        assertEquals(2.0, plotData.getDataX(1), 0.001);
+        assertEquals(-1.0, plotData.getDataMinY(), 0.001);
+        assertEquals(3.0, plotData.getDataMaxY(), 0.001);
+        assertEquals(PlotData.Style.LINE, plotData.getStyle());
+
+        plotData.update(new double[] { 1.0, 0.5 }); // wrong length is ignored
+        assertEquals(-1.0, plotData.getDataY(0), 0.001);
+
+        plotData.update(new double[] { 7.0, 8.0 }, new double[] { 9.0, 10.0 });
+        assertEquals(2, plotData.size());
+        assertEquals(8.0, plotData.getDataMaxX(), 0.001);
+        assertEquals(10.0, plotData.getDataY(1), 0.001);
+    }
+
+    @Test
+    public void testRescaleOnlyWhenChanged() {
+        double[] x = { 0.0, 5.0, 10.0 };
+        double[] y = { 0.0, 5.0, 10.0 };
+        PlotData plotData = PlotData.wrap(x, y);
+        plotData.rescale(0, 100, 100, 0, 0, 10, 0, 10);
+        assertEquals(50.0, plotData.getDisplayX(1), 0.001);
+
+        // changed without telling PlotData, same view: cached coords are re-used
+        x[1] = 10.0;
+        plotData.rescale(0, 100, 100, 0, 0, 10, 0, 10);
+        assertEquals(50.0, plotData.getDisplayX(1), 0.001);
+
+        plotData.dataChanged();
+        plotData.rescale(0, 100, 100, 0, 0, 10, 0, 10);
+        assertEquals(100.0, plotData.getDisplayX(1), 0.001);
+
+        // new view
+        plotData.rescale(0, 200, 100, 0, 0, 10, 0, 10);
+        assertEquals(200.0, plotData.getDisplayX(1), 0.001);
+
+        plotData.add(5.0, 5.0);
+        plotData.rescale(0, 200, 100, 0, 0, 10, 0, 10);
+        assertEquals(4, plotData.getScreenXCoords().size());
+        assertEquals(100.0, plotData.getDisplayX(3), 0.001);
+    }
+
+    @Test
+    public void testDownsample() {
+        double[] x = new double[1000];
+        double[] y = new double[1000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 50.0);
+        }
+        y[500] = 20.0;
+        PlotData plotData = new PlotData(x, y).downsample(50);
+        assertEquals(50, plotData.getDownsampleTarget());
+
+        plotData.rescale(0, 1000, 100, 0, 0, 1000, -1, 20);
+        // the spike must be one of the points kept
+        assertEquals(0.0, plotData.getDisplayY(500), 0.001);
+
+        plotData.downsample(2); // too small, ignored
+        assertEquals(50, plotData.getDownsampleTarget());
+        plotData.downsample(0);
+        assertEquals(0, plotData.getDownsampleTarget());
+    }
+
+    @Test
+    public void testDownsampleWhileStreaming() {
+        ScatterPlot plot = new ScatterPlot(0, 0, 400, 200);
+        plot.zoomViewTo(0, -2, 30000, 25);
+        PlotData data = plot.plot(0, 0, 0).downsample(100).style(".").strokeColor("red").strokeWeight(3);
+
+        // the selection is updated as points arrive, so spikes added later must still be kept
+        RasterRenderer renderer = new RasterRenderer(400, 200);
+        for (int i = 1; i < 25000; i++) {
+            data.add(i, i == 12345 || i == 24000 ? 20 : Math.sin(i / 100.0));
+            if (i % 10 == 0) {
+                plot.draw(renderer);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            data.remove(0);
+        }
+
+        renderer = new RasterRenderer(400, 200);
+        plot.draw(renderer);
+        for (double spikeX : new double[] { 12345, 24000 }) {
+            int px = (int) Math.round(plot.getScreenXFor(spikeX));
+            int py = (int) Math.round(plot.getScreenYFor(20));
+            assertEquals(PlotData.RED, renderer.getImage().getRGB(px, py));
+        }
+    }
+
+    @Test
+    public void testDownsampleSlidingWindowMatchesFromScratch() {
+        // the selection is updated as the window slides; it must match sampling the same window from scratch
+        Random random = new Random(7);
+        double[] y = new double[1300];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = random.nextGaussian();
+        }
+        ScatterPlot plot = new ScatterPlot(0, 0, 2000, 200);
+        PlotData streamed = plot.plot(new PlotData().setMaxSize(1000).downsample(100).style("."));
+        plot.zoomViewTo(0, -5, 2000, 5);
+
+        CountingRenderer renderer = new CountingRenderer(2000, 200);
+        for (int i = 0; i < y.length; i++) {
+            streamed.add(i, y[i]);
+            if (i < 999)
+                continue;
+            renderer.reset();
+            plot.draw(renderer);
+            assertArrayEquals("after " + (i + 1) + " points", drawnFromScratch(y, i + 1), renderer.shapes.get(0), 0);
+        }
+    }
+
+    @Test
+    public void testDownsamplePublishedWindowMatchesFromScratch() {
+        // published copies carry on sampling from the last copy drawn
+        Random random = new Random(11);
+        double[] y = new double[1300];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = random.nextGaussian();
+        }
+        ScatterPlot plot = new ScatterPlot(0, 0, 2000, 200);
+        PlotData streamed = plot.plot(new PlotData().setMaxSize(1000).downsample(100).style("."));
+        plot.zoomViewTo(0, -5, 2000, 5);
+
+        CountingRenderer renderer = new CountingRenderer(2000, 200);
+        for (int i = 0; i < y.length; i++) {
+            streamed.add(i, y[i]);
+            if (i < 999)
+                continue;
+            streamed.publish();
+            renderer.reset();
+            plot.draw(renderer);
+            assertArrayEquals("after " + (i + 1) + " points", drawnFromScratch(y, i + 1), renderer.shapes.get(0), 0);
+        }
+    }
+
+    /***
+     * Draw the first n values of y as a new sliding window dataset, sampled
+     * only once, and get the points drawn.
+     */
+    private static float[] drawnFromScratch(double[] y, int n) {
+        ScatterPlot plot = new ScatterPlot(0, 0, 2000, 200);
+        PlotData data = plot.plot(new PlotData().setMaxSize(1000).downsample(100).style("."));
+        plot.zoomViewTo(0, -5, 2000, 5);
+        for (int i = 0; i < n; i++) {
+            data.add(i, y[i]);
+        }
+        CountingRenderer renderer = new CountingRenderer(2000, 200);
+        plot.draw(renderer);
+        return renderer.shapes.get(0);
+    }
+
+    @Test
+    public void testLineKeepsColumnExtremes() {
+        // about ten points per pixel column
+        Random random = new Random(1);
+        double[] x = new double[1000];
+        double[] y = new double[1000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = random.nextDouble();
+        }
+        ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+        plot.plot(x, y).style("-");
+        CountingRenderer renderer = new CountingRenderer(100, 100);
+        plot.draw(renderer);
+
+        Map<Integer, List<Integer>> drawn = new HashMap<>(); // y of the vertices drawn in each column
+        for (float[] shape : renderer.shapes) {
+            for (int i = 0; i < shape.length; i += 2) {
+                drawn.computeIfAbsent((int) shape[i], k -> new ArrayList<>()).add((int) shape[i + 1]);
+            }
+        }
+
+        int from = 0;
+        while (from < x.length) {
+            int column = (int) plot.getScreenXFor(x[from]);
+            int to = from;
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (; to < x.length && (int) plot.getScreenXFor(x[to]) == column; to++) {
+                int py = (int) plot.getScreenYFor(y[to]);
+                min = Math.min(min, py);
+                max = Math.max(max, py);
+            }
+
+            List<Integer> ys = drawn.get(column);
+            assertNotNull(ys);
+            assertTrue(ys.size() <= 4);
+            assertTrue(ys.contains((int) plot.getScreenYFor(y[from])));
+            assertTrue(ys.contains(min));
+            assertTrue(ys.contains(max));
+            assertTrue(ys.contains((int) plot.getScreenYFor(y[to - 1])));
+            from = to;
+        }
+    }
+
+    @Test
+    public void testDrawsOneShapePerDataset() {
+        double[] x = new double[500];
+        double[] y = new double[500];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 20.0);
+        }
+
+        for (String style : new String[] { ".", "--", "-" }) {
+            ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+            plot.plot(x, y).style(style);
+            CountingRenderer renderer = new CountingRenderer(100, 100);
+            plot.draw(renderer);
+
+            assertEquals(style, 1, renderer.shapes.size());
+            assertTrue(style, renderer.lines <= 10); // only the grid, not a line per point
+        }
+
+        ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+        plot.plot(x, y).style(".");
+        CountingRenderer renderer = new CountingRenderer(100, 100);
+        plot.draw(renderer);
+        assertEquals(Integer.valueOf(CountingRenderer.POINTS), renderer.shapeKinds.get(0));
+        assertEquals(2 * x.length, renderer.shapes.get(0).length); // every point is in view
+    }
+
+    @Test
+    public void testLineBreaksOnlyWhereClipped() {
+        ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+        plot.plot(new double[] { 0, 1, 2, 3, 4, 5, 6 }, new double[] { 0, 1, 0, 10, 0, 1, 0 }).style("-");
+        plot.zoomViewTo(0, 0, 6, 2); // the spike leaves the top of the plot
+        CountingRenderer renderer = new CountingRenderer(100, 100);
+        plot.draw(renderer);
+
+        assertEquals(2, renderer.shapes.size());
+        for (int kind : renderer.shapeKinds) {
+            assertEquals(CountingRenderer.POLYLINE, kind);
+        }
+    }
+
+    @Test
+    public void testIsSortedX() {
+        PlotData plotData = new PlotData(new double[] { 1.0, 2.0, 3.0 }, new double[] { 0.0, 0.0, 0.0 });
+        assertTrue(plotData.isSortedX());
+        plotData.add(0.5, 0.0);
+        assertFalse(plotData.isSortedX());
+        plotData.remove(3);
+        assertTrue(plotData.isSortedX());
+
+        PlotData window = new PlotData().setMaxSize(3);
+        window.add(5.0, 0.0);
+        window.add(1.0, 0.0);
+        assertFalse(window.isSortedX());
+        window.add(2.0, 0.0);
+        window.add(3.0, 0.0); // evicts 5.0
+        assertTrue(window.isSortedX());
+    }
+
+    @Test
+    public void testRescaleZoomedSortedData() {
+        double[] x = new double[1000];
+        double[] y = new double[1000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = i;
+        }
+        PlotData plotData = new PlotData(x, y);
+        plotData.rescale(0, 100, 100, 0, 500, 510, 500, 510);
+        assertEquals(50.0, plotData.getDisplayX(505), 0.001);
+        assertEquals(50.0, plotData.getDisplayY(505), 0.001);
+        // points out of view are still mapped correctly
+        assertEquals(-5000.0, plotData.getDisplayX(0), 0.001);
+        assertEquals(-5000, (int) plotData.getScreenXCoords().get(0));
+    }
+
+    @Test
+    public void testLargeDataBoundsAndRescale() {
+        int n = 1 << 20; // large enough to be scanned in parallel
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 1000.0) + 2;
+        }
+        y[12345] = 7.5;
+        x[n / 2] = -3; // one descent in the middle
+        PlotData plotData = new PlotData(x, y);
+
+        assertEquals(-3.0, plotData.getDataMinX(), 0.001);
+        assertEquals(n - 1, plotData.getDataMaxX(), 0.001);
+        assertEquals(0.0, plotData.getDataMinY(), 0.001); // bounds include the origin
+        assertEquals(7.5, plotData.getDataMaxY(), 0.001);
+        assertFalse(plotData.isSortedX());
+
+        plotData.rescale(0, 1000, 1000, 0, 0, n, 0, 10);
+        for (int i = 0; i < n; i += 4099) {
+            assertEquals((int) (x[i] * 1000 / n), plotData.getDisplayX(i), 0.001);
+            assertEquals((int) (1000 - y[i] * 100), plotData.getDisplayY(i), 0.001);
+        }
+    }
+
+    @Test
+    public void testPublish() {
+        PlotData plotData = new PlotData(new double[] { 1, 2 }, new double[] { 3, 4 });
+        assertSame(plotData, plotData.getPublished());
+
+        plotData.strokeColor("red").publish();
+        PlotData front = plotData.getPublished();
+        assertNotSame(plotData, front);
+        assertEquals(2, front.size());
+        assertEquals(PlotData.RED, front.getStrokeColor());
+
+        plotData.add(5, 6);
+        assertEquals(2, front.size()); // unchanged until published again
+        assertSame(front, plotData.getPublished());
+        plotData.publish();
+        assertEquals(3, plotData.getPublished().size());
+        assertEquals(6.0, plotData.getPublished().getDataMaxY(), 0.001);
+    }
+
+    @Test
+    public void testPublishedWindowBoundsAreIndependent() {
+        PlotData plotData = new PlotData().setMaxSize(4);
+        double[] ys = { 5.0, -3.0, 1.0, 2.0, 0.5 };
+        for (int i = 0; i < ys.length; i++) {
+            plotData.add(i, ys[i]);
+        }
+        plotData.publish();
+        PlotData front = plotData.getPublished();
+        assertEquals(-3.0, front.getDataMinY(), 0.001);
+        assertEquals(2.0, front.getDataMaxY(), 0.001);
+
+        // the copy shares the window's extremes until one of them changes
+        plotData.add(5, 9.0);
+        plotData.add(6, 0.75);
+        assertEquals(0.5, plotData.getDataMinY(), 0.001);
+        assertEquals(9.0, plotData.getDataMaxY(), 0.001);
+        assertEquals(-3.0, front.getDataMinY(), 0.001);
+        assertEquals(2.0, front.getDataMaxY(), 0.001);
+
+        front.add(5, -1.0);
+        front.add(6, -2.0);
+        assertEquals(-2.0, front.getDataMinY(), 0.001); // window now holds y = 2.0, 0.5, -1.0, -2.0
+        assertEquals(2.0, front.getDataMaxY(), 0.001);
+        assertEquals(0.5, plotData.getDataMinY(), 0.001);
+        assertEquals(9.0, plotData.getDataMaxY(), 0.001);
+    }
+
+    @Test
+    public void testPublishWhileDrawing() throws InterruptedException {
+        int n = 1000;
+        double[] y = new double[n];
+        PlotData plotData = new PlotData(MathUtils.linspace(0, 1, n), y).style("-");
+        plotData.publish();
+        ScatterPlot plot = new ScatterPlot(0, 0, 200, 200);
+        plot.plot(plotData);
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int k = 1; k <= 2000; k++) {
+                Arrays.fill(y, k);
+                plotData.update(y);
+                plotData.publish();
+            }
+            done.set(true);
+        });
+        writer.start();
+
+        RasterRenderer renderer = new RasterRenderer(200, 200);
+        while (!done.get()) {
+            plot.draw(renderer);
+            PlotData front = plotData.getPublished();
+            double first = front.getDataY(0);
+            for (int i = 1; i < front.size(); i++) {
+                assertEquals(first, front.getDataY(i), 0); // never half updated
+            }
+        }
+        writer.join();
+        assertEquals(2000.0, plotData.getPublished().getDataY(n - 1), 0);
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        PlotData original = new PlotData(new double[] { 1, 2, 3 }, new double[] { 4, 5, 6 }).style("--");
+        PlotData copy = new PlotData(original);
+        assertEquals(3, copy.size());
+        assertEquals(6.0, copy.getDataMaxY(), 0.001);
+        assertEquals(PlotData.Style.DASH, copy.getStyle());
+
+        original.add(10, 20);
+        copy.remove(1);
+        assertEquals(4, original.size());
+        assertEquals(2.0, original.getDataX(1), 0.001);
+        assertEquals(2, copy.size());
+        assertEquals(3.0, copy.getDataX(1), 0.001);
+
+        PlotData copyOfCopy = new PlotData(copy);
+        copy.update(new double[] { 9, 9 });
+        assertEquals(4.0, copyOfCopy.getDataY(0), 0.001);
+    }
+
+    @Test
+    public void testCopyOfWrappedData() {
+        double[] x = { 1, 2, 3 };
+        double[] y = { 4, 5, 6 };
+        PlotData wrapped = PlotData.wrap(x, y);
+        PlotData copy = new PlotData(wrapped);
+        y[0] = 100; // caller changes the wrapped array in place
+        assertEquals(100.0, wrapped.getDataY(0), 0.001);
+        assertEquals(4.0, copy.getDataY(0), 0.001);
     }
-}
\ No newline at end of file
+}
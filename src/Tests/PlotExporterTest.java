@@ -0,0 +1,79 @@
+package Tests;
+
+import Plot.MathUtils;
+import Plot.PlotExporter;
+import Plot.ScatterPlot;
+import Plot.TimeSeriesPlot;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlotExporterTest {
+    private static ScatterPlot makePlot(double frequency) {
+        ScatterPlot plot = new ScatterPlot(20, 20, 180, 130);
+        double[] x = MathUtils.linspace(0, 10, 500);
+        plot.plot(x, MathUtils.apply(v -> Math.sin(frequency * v), x)).style("-");
+        plot.set(ScatterPlot.Setting.show_axes, true);
+        return plot;
+    }
+
+    @Test
+    public void testToPng() throws IOException {
+        byte[] png = PlotExporter.toPng(makePlot(1), 200, 150);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(200, image.getWidth());
+        assertEquals(150, image.getHeight());
+        assertEquals(0xFFFFFFFF, image.getRGB(0, 0));
+    }
+
+    @Test
+    public void testRenderTimeSeries() throws IOException {
+        TimeSeriesPlot plot = new TimeSeriesPlot(10, 10, 90, 90, 50);
+        for (int i = 0; i < 100; i++) {
+            plot.plot(0, i, i % 7);
+        }
+        byte[] png = PlotExporter.toPng(plot, 100, 100);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(100, image.getWidth());
+
+        // a blank export would only have background inside the plot
+        int background = image.getRGB(0, 0);
+        int plotted = 0;
+        for (int y = 10; y < 90; y++) {
+            for (int x = 10; x < 90; x++) {
+                if (image.getRGB(x, y) != background) {
+                    plotted++;
+                }
+            }
+        }
+        assertTrue("only " + plotted + " pixels plotted", plotted > 50);
+    }
+
+    @Test
+    public void testRenderAllMatchesSequential() throws IOException {
+        List<ScatterPlot> plots = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            plots.add(makePlot(i + 1));
+            expected.add(PlotExporter.toPng(makePlot(i + 1), 200, 150));
+        }
+
+        List<byte[]> pngs;
+        try (PlotExporter exporter = new PlotExporter(4)) {
+            pngs = exporter.renderAll(plots, 200, 150);
+        }
+
+        assertEquals(plots.size(), pngs.size());
+        for (int i = 0; i < plots.size(); i++) {
+            assertArrayEquals(expected.get(i), pngs.get(i));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package Tests;
+
+import Plot.Plot;
+import Plot.PlotData;
+import Plot.PlotExporter;
+import Plot.PlotFile;
+import Plot.ScatterPlot;
+import Plot.TimeSeriesPlot;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlotFileTest {
+    static final double acceptableDelta = 0.0001;
+    private Path file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("plot", ".plt");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testScatterPlotRoundTrip() throws IOException {
+        ScatterPlot plot = new ScatterPlot(10, 20, 410, 320);
+        plot.set(Plot.Setting.show_axes, true);
+        plot.set(Plot.Setting.freeze_x_scale, false);
+        plot.plot(new double[] { 1, 2, 3, 4 }, new double[] { -2, 8, 3, 5 }).strokeColor("red").style("-")
+                .strokeWeight(3);
+        plot.plot(new double[] { 5, 1 }, new double[] { 0, 1 }).fillColor("blue").style(",").downsample(10);
+        plot.zoomViewTo(0, -1, 4, 6);
+        PlotFile.write(file, plot);
+
+        Plot read = PlotFile.read(file);
+        assertTrue(read instanceof ScatterPlot);
+        assertEquals(10, read.getLeftX(), acceptableDelta);
+        assertEquals(320, read.getBottomY(), acceptableDelta);
+        assertEquals(4.0, read.getDataViewMaxX(), acceptableDelta);
+        assertEquals(-1.0, read.getDataViewMinY(), acceptableDelta);
+        assertEquals(2, read.getDatasets().size());
+
+        PlotData first = read.getDatasets().get(0);
+        assertEquals(4, first.size());
+        assertEquals(8.0, first.getDataY(1), acceptableDelta);
+        assertEquals(8.0, first.getDataMaxY(), acceptableDelta);
+        assertEquals(PlotData.RED, first.getStrokeColor());
+        assertEquals(PlotData.Style.LINE, first.getStyle());
+        assertEquals(3.0, first.getStrokeWeight(), acceptableDelta);
+        assertTrue(first.isSortedX());
+
+        PlotData second = read.getDatasets().get(1);
+        assertEquals(PlotData.BLUE, second.getFillColor());
+        assertEquals(PlotData.Style.PIXEL, second.getStyle());
+        assertEquals(10, second.getDownsampleTarget());
+        assertFalse(second.isSortedX());
+
+        // settings survive, including ones set to false
+        ScatterPlot copy = new ScatterPlot((ScatterPlot) read);
+        copy.plot(0, 100, 100);
+        assertEquals(4.0, copy.getDataViewMaxX(), acceptableDelta);
+    }
+
+    @Test
+    public void testReadDatasetsAreCopyOnWrite() throws IOException {
+        ScatterPlot plot = new ScatterPlot(0, 0, 100, 100);
+        plot.plot(new double[] { 1, 2, 3 }, new double[] { 4, 5, 6 });
+        PlotFile.write(file, plot);
+
+        Plot read = PlotFile.read(file);
+        PlotData data = read.plot(0, 4, 7);
+        assertEquals(4, data.size());
+        assertEquals(7.0, data.getDataY(3), acceptableDelta);
+        assertEquals(7.0, data.getDataMaxY(), acceptableDelta);
+
+        // the file is unchanged
+        assertEquals(3, PlotFile.read(file).getDatasets().get(0).size());
+    }
+
+    @Test
+    public void testUnsortedReadDatasetStaysUnsorted() throws IOException {
+        ScatterPlot plot = new ScatterPlot(0, 0, 200, 200);
+        plot.plot(new double[] { 9, 1, 2, 3, 0.5, 4 }, new double[] { 2, 2, 2, 2, 5, 2 }).style(",")
+                .strokeColor("red").strokeWeight(3);
+        PlotFile.write(file, plot);
+
+        Plot read = PlotFile.read(file);
+        PlotData data = read.getDatasets().get(0);
+        data.remove(0); // the point before the first descent
+        data.add(5, 2);
+        assertFalse(data.isSortedX());
+
+        // x = 0.5 comes after points outside this view, so it is only drawn if
+        // the dataset isn't culled as if it were sorted
+        read.zoomViewTo(0, 0, 1.5, 10);
+        BufferedImage image = PlotExporter.render(read, 200, 200);
+        int px = (int) Math.round(read.getScreenXFor(0.5));
+        int py = (int) Math.round(read.getScreenYFor(5));
+        assertEquals(PlotData.RED, image.getRGB(px, py));
+    }
+
+    @Test
+    public void testTimeSeriesRoundTrip() throws IOException {
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, 5);
+        for (int i = 0; i < 8; i++) {
+            plot.plot(0, i, i * i);
+        }
+        PlotFile.write(file, plot);
+
+        Plot read = PlotFile.read(file);
+        assertTrue(read instanceof TimeSeriesPlot);
+        PlotData data = read.getDatasets().get(0);
+        assertEquals(4, data.size());
+        assertEquals(4, data.getMaxSize());
+        assertEquals(4.0, data.getDataX(0), acceptableDelta);
+
+        read.plot(0, 8, 64);
+        assertEquals(4, data.size());
+        assertEquals(5.0, data.getDataX(0), acceptableDelta);
+        assertEquals(64.0, data.getDataMaxY(), acceptableDelta);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAPlotFile() throws IOException {
+        Files.write(file, new byte[256]);
+        PlotFile.read(file);
+    }
+}
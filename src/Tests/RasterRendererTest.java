@@ -0,0 +1,76 @@
+package Tests;
+
+import Plot.PlotData;
+import Plot.RasterRenderer;
+import Plot.Renderer;
+import Plot.ScatterPlot;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RasterRendererTest {
+    private static final int WHITE = 0xFFFFFFFF;
+    private RasterRenderer renderer;
+
+    @Before
+    public void setup() {
+        renderer = new RasterRenderer(100, 80);
+    }
+
+    @Test
+    public void testBackground() {
+        renderer.background(WHITE);
+        for (int pixel : renderer.getPixels()) {
+            assertEquals(WHITE, pixel);
+        }
+        assertEquals(WHITE, renderer.getImage().getRGB(99, 79));
+    }
+
+    @Test
+    public void testDrawLayer() {
+        renderer.background(WHITE);
+        Renderer layer = renderer.createLayer(10, 10);
+        layer.loadPixels()[0] = PlotData.RED;
+        layer.loadPixels()[1] = 0x80000000; // half transparent black
+        layer.updatePixels();
+
+        renderer.drawLayer(layer, 5, 5);
+        int[] pixels = renderer.getPixels();
+        assertEquals(PlotData.RED, pixels[5 * 100 + 5]);
+        assertEquals(0xFF7F7F7F, pixels[5 * 100 + 6]);
+        assertEquals(WHITE, pixels[5 * 100 + 7]); // transparent layer pixels leave the image alone
+    }
+
+    @Test
+    public void testImage() {
+        renderer.background(WHITE);
+        // 4x4 pixels at density 2 cover 2x2 screen pixels; every other pixel is used
+        int[] image = new int[16];
+        image[0] = PlotData.RED;
+        image[2] = PlotData.BLUE;
+        image[8] = 0x80000000;
+        image[10] = 0; // transparent
+        image[1] = PlotData.BLACK; // skipped at density 2
+        renderer.image(image, 4, 4, 2, 98, 78);
+
+        int[] pixels = renderer.getPixels();
+        assertEquals(PlotData.RED, pixels[78 * 100 + 98]);
+        assertEquals(PlotData.BLUE, pixels[78 * 100 + 99]);
+        assertEquals(0xFF7F7F7F, pixels[79 * 100 + 98]);
+        assertEquals(WHITE, pixels[79 * 100 + 99]);
+        assertEquals(WHITE, pixels[78 * 100 + 97]);
+    }
+
+    @Test
+    public void testDrawPlot() {
+        ScatterPlot plot = new ScatterPlot(10, 10, 90, 70);
+        plot.plot(new double[] { 0, 1, 2 }, new double[] { 0, 2, 1 }).style(",").strokeColor("blue");
+        renderer.background(WHITE);
+        plot.draw(renderer);
+
+        int[] pixels = renderer.getPixels();
+        assertEquals(PlotData.BLUE, pixels[70 * 100 + 10]); // (0, 0) is the bottom left corner
+        assertEquals(WHITE, pixels[5 * 100 + 5]); // outside the plot
+    }
+}
@@ -1,8 +1,16 @@
 package Tests;
 
 import Plot.PlotData;
+import Plot.PlotExporter;
+import Plot.ProcessingRenderer;
+import Plot.RasterRenderer;
 import Plot.ScatterPlot;
 
+import java.awt.image.BufferedImage;
+
+import processing.awt.PGraphicsJava2D;
+import processing.core.PApplet;
+
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -59,4 +67,205 @@ public class ScatterPlotTest {
 		// Verify that a new data object is created and added to the scatter plot
 		assertTrue(scatterPlot.getDatasets().contains(data));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testUpdatePlot() {
+		scatterPlot.plot(new double[] { 1.0, 2.0 }, new double[] { 3.0, 4.0 });
+		PlotData data = scatterPlot.plot(new double[] { 1.0, 2.0 }, new double[] { 5.0, 6.0 }).style("-");
+
+		PlotData updated = scatterPlot.updatePlot(1, new double[] { 7.0, 8.0 });
+		assertSame(data, updated);
+		assertEquals(2, scatterPlot.getDatasets().size());
+		assertEquals(8.0, data.getDataY(1), 0.001);
+		assertEquals(PlotData.Style.LINE, data.getStyle());
+
+		assertNull(scatterPlot.updatePlot(5, new double[] { 1.0, 2.0 }));
+	}
+
+	@Test
+	public void testCacheLayers() {
+		scatterPlot.set(ScatterPlot.Setting.cache_layers, true);
+		PlotData first = scatterPlot.plot(new double[] { 0, 1, 2, 3 }, new double[] { 0, 3, 1, 2 }).style(".");
+		scatterPlot.plot(new double[] { 0, 3 }, new double[] { 1, 2 }).style(".");
+		CountingRenderer renderer = new CountingRenderer(100, 100);
+		scatterPlot.draw(renderer); // new view: everything is drawn directly
+		assertEquals(2, renderer.shapes.size());
+
+		renderer.reset();
+		scatterPlot.draw(renderer); // nothing changed: both datasets go into the layer
+		CountingRenderer layer = renderer.layers.get(renderer.layers.size() - 1);
+		assertEquals(2, layer.shapes.size());
+		assertEquals(0, renderer.shapes.size());
+
+		renderer.reset();
+		layer.reset();
+		scatterPlot.draw(renderer); // the layer is re-used as it is
+		assertEquals(0, layer.shapes.size());
+		assertEquals(0, renderer.shapes.size());
+
+		// a data change in the second dataset keeps only the first in the layer
+		scatterPlot.plot(1, 1.5, 1.5);
+		renderer.reset();
+		layer.reset();
+		scatterPlot.draw(renderer);
+		assertEquals(1, layer.shapes.size());
+		assertEquals(1, renderer.shapes.size());
+
+		// a data change in the first dataset leaves nothing to cache
+		scatterPlot.draw(renderer);
+		first.add(2.5, 2.5);
+		renderer.reset();
+		layer.reset();
+		scatterPlot.draw(renderer);
+		assertEquals(0, layer.shapes.size());
+		assertEquals(2, renderer.shapes.size());
+
+		// and so does a view change
+		scatterPlot.draw(renderer);
+		scatterPlot.zoomViewTo(0, 0, 2, 2);
+		renderer.reset();
+		layer.reset();
+		scatterPlot.draw(renderer);
+		assertEquals(0, layer.shapes.size());
+		assertEquals(2, renderer.shapes.size());
+
+		renderer.reset();
+		scatterPlot.draw(renderer); // the layer is redrawn for the new view
+		assertEquals(2, layer.shapes.size());
+		assertEquals(0, renderer.shapes.size());
+	}
+
+	@Test
+	public void testCacheLayersExportAfterShowing() {
+		scatterPlot.set(ScatterPlot.Setting.cache_layers, true);
+		scatterPlot.plot(new double[] { 0, 1, 2, 3 }, new double[] { 0, 3, 1, 2 }).style(".").strokeColor("red");
+		scatterPlot.plot(new double[] { 0.5, 2.5 }, new double[] { 1, 2 }).style(".").strokeColor("red");
+		ScatterPlot neverShown = new ScatterPlot(scatterPlot);
+		PlotExporter.render(neverShown, 100, 100);
+		BufferedImage expected = PlotExporter.render(neverShown, 100, 100);
+
+		// the layer made while showing the plot can't be drawn by the exporter's renderer
+		showInWindow(scatterPlot, 100, 100);
+		BufferedImage actual = PlotExporter.render(scatterPlot, 100, 100);
+		int lit = 0;
+		for (int y = 0; y < 100; y++) {
+			for (int x = 0; x < 100; x++) {
+				boolean red = expected.getRGB(x, y) == PlotData.RED;
+				assertEquals("pixel (" + x + ", " + y + ")", red, actual.getRGB(x, y) == PlotData.RED);
+				lit += red ? 1 : 0;
+			}
+		}
+		assertTrue(lit > 0);
+	}
+
+	@Test
+	public void testAxesExportAfterShowing() {
+		ScatterPlot plot = new ScatterPlot(20, 20, 380, 280);
+		plot.plot(new double[] { 0, 10, 20 }, new double[] { 0, 5, 3 });
+		plot.set(ScatterPlot.Setting.show_axes, true);
+		plot.set(ScatterPlot.Setting.cache_layers, true);
+		ScatterPlot neverShown = new ScatterPlot(plot);
+		PlotExporter.render(neverShown, 400, 300);
+		BufferedImage expected = PlotExporter.render(neverShown, 400, 300);
+
+		// neither the grid layer nor the labels measured with Processing's font can be re-used
+		showInWindow(plot, 400, 300);
+		assertImagesEqual(expected, PlotExporter.render(plot, 400, 300));
+	}
+
+	/***
+	 * Draw a few frames of plot with a ProcessingRenderer, like a sketch
+	 * showing it would.
+	 */
+	private static void showInWindow(ScatterPlot plot, int width, int height) {
+		PApplet sketch = new PApplet();
+		sketch.g = new PGraphicsJava2D();
+		sketch.g.setParent(sketch);
+		sketch.g.setPrimary(false);
+		sketch.g.setSize(width, height);
+		ProcessingRenderer renderer = new ProcessingRenderer(sketch);
+		for (int i = 0; i < 3; i++) {
+			sketch.g.beginDraw();
+			sketch.g.background(255);
+			plot.draw(renderer);
+			sketch.g.endDraw();
+		}
+	}
+
+	private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals("pixel (" + x + ", " + y + ")", expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testTicksCached() {
+		ScatterPlot plot = new ScatterPlot(20, 20, 380, 280);
+		plot.plot(new double[] { 0, 10, 20 }, new double[] { 0, 5, 3 });
+		CountingRenderer renderer = new CountingRenderer(400, 300);
+		renderer.background(0xFFFFFFFF);
+		plot.draw(renderer);
+		assertTrue(renderer.textWidths > 0); // labels are measured when the ticks are calculated
+		int[] firstFrame = renderer.getPixels().clone();
+		int texts = renderer.texts;
+
+		renderer.reset();
+		renderer.background(0xFFFFFFFF);
+		plot.draw(renderer);
+		assertEquals(0, renderer.textWidths); // same view and text settings: ticks are re-used
+		assertEquals(texts, renderer.texts);
+		assertArrayEquals(firstFrame, renderer.getPixels());
+
+		plot.setTextSize(20);
+		renderer.reset();
+		plot.draw(renderer);
+		assertTrue(renderer.textWidths > 0);
+
+		plot.setXAxisTextYAdjustement(10);
+		renderer.reset();
+		plot.draw(renderer);
+		assertTrue(renderer.textWidths > 0);
+
+		renderer.reset();
+		plot.draw(renderer);
+		assertEquals(0, renderer.textWidths);
+
+		plot.zoomViewTo(5, 1, 15, 4);
+		renderer.reset();
+		plot.draw(renderer);
+		assertTrue(renderer.textWidths > 0);
+	}
+
+	@Test
+	public void testPrepareInBackground() throws InterruptedException {
+		double[] x = { 0, 1, 2, 3 };
+		double[] y = { 0, 3, 1, 2 };
+		scatterPlot.plot(x, y).style("-").strokeColor("red");
+		ScatterPlot direct = new ScatterPlot(scatterPlot);
+		RasterRenderer expected = new RasterRenderer(100, 100);
+		expected.background(0xFFFFFFFF);
+		direct.draw(expected);
+
+		scatterPlot.set(ScatterPlot.Setting.prepare_in_background, true);
+		scatterPlot.set(ScatterPlot.Setting.cache_layers, true);
+		RasterRenderer actual = new RasterRenderer(100, 100);
+		actual.background(0xFFFFFFFF);
+		scatterPlot.draw(actual); // nothing prepared yet, so the first frame is prepared right away
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+
+		// later changes are prepared in the background and show once ready
+		double[] newY = { 3, 0, 2, 1 };
+		direct.updatePlot(0, newY);
+		expected.background(0xFFFFFFFF);
+		direct.draw(expected);
+		scatterPlot.updatePlot(0, newY);
+		actual.background(0xFFFFFFFF);
+		scatterPlot.draw(actual);
+		scatterPlot.awaitPrepared();
+		actual.background(0xFFFFFFFF);
+		scatterPlot.draw(actual);
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+	}
+}
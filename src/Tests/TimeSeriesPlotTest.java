@@ -3,6 +3,7 @@ package Tests;
 import Plot.TimeSeriesPlot;
 import Plot.Plot.Setting;
 import Plot.PlotData;
+import Plot.RasterRenderer;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -49,6 +50,57 @@ public class TimeSeriesPlotTest {
         assertEquals(0, result.size());
     }
 
+    @Test
+    public void testPlotEvictsOldestPoints() {
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, 5);
+        PlotData result = null;
+        for (int i = 0; i < 8; i++) {
+            result = plot.plot(i, 2.0 * i);
+        }
+        assertEquals(4, result.size()); // the window keeps dataPointWidth - 1 points
+        assertEquals(4.0, result.getDataX(0), acceptableDelta);
+        assertEquals(7.0, result.getDataX(3), acceptableDelta);
+        assertEquals(4.0, result.getDataMinX(), acceptableDelta);
+        assertEquals(7.0, result.getDataMaxX(), acceptableDelta);
+    }
+
+    @Test
+    public void testConstantSeries() {
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, 5);
+        PlotData result = plot.plot(0, 5.0);
+        // a single sample has neither width nor height, but must still land inside the plot
+        assertEquals(50.0, plot.getScreenXFor(0), acceptableDelta);
+        assertEquals(50.0, plot.getScreenYFor(5.0), acceptableDelta);
+
+        for (int i = 1; i < 8; i++) {
+            result = plot.plot(i, 5.0);
+        }
+        assertTrue(plot.getDataViewMinY() < 5.0);
+        assertTrue(plot.getDataViewMaxY() > 5.0);
+        assertEquals(50.0, plot.getScreenYFor(5.0), acceptableDelta);
+        result.rescale(0, 100, 100, 0, plot.getDataViewMinX(), plot.getDataViewMaxX(), plot.getDataViewMinY(),
+                plot.getDataViewMaxY());
+        assertEquals(50.0, result.getDisplayY(0), acceptableDelta);
+    }
+
+    @Test
+    public void testYBoundsShrinkAfterSpikeLeavesWindow() {
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, 3);
+        plot.plot(0, 1.0);
+        PlotData result = plot.plot(1, 50.0);
+        assertEquals(50.0, result.getDataMaxY(), acceptableDelta);
+
+        for (int i = 2; i < 6; i++) {
+            result = plot.plot(i, i % 2 == 0 ? 2.0 : 4.0);
+        }
+        assertEquals(2.0, result.getDataMinY(), acceptableDelta);
+        assertEquals(4.0, result.getDataMaxY(), acceptableDelta);
+        assertEquals(4.0, plot.getDataViewMinX(), acceptableDelta);
+        assertEquals(5.0, plot.getDataViewMaxX(), acceptableDelta);
+        assertEquals(2.0, plot.getDataViewMinY(), acceptableDelta);
+        assertEquals(4.0, plot.getDataViewMaxY(), acceptableDelta);
+    }
+
     // @Test
     // public void testShiftXBounds() {
     // TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, 5);
@@ -61,4 +113,91 @@ public class TimeSeriesPlotTest {
     // assertEquals(1.0, data.getDataMinX());
     // assertEquals(3.0, data.getDataMaxX());
     // }
-}
\ No newline at end of file
+
+    @Test
+    public void testOfferFromManyThreads() throws InterruptedException {
+        int producers = 4, perProducer = 5000;
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, perProducer + 2, 256);
+        for (int i = 0; i < producers; i++) {
+            plot.plot(i, -1, 0); // one dataset per producer
+        }
+
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!plot.offer(id, i, id)) {
+                        Thread.yield(); // queue full until the next drain
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        int drained = 0;
+        while (drained < producers * perProducer) {
+            drained += plot.drainOffered();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, plot.drainOffered());
+        for (int t = 0; t < producers; t++) {
+            PlotData data = plot.getDatasets().get(t);
+            assertEquals(perProducer + 1, data.size());
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(i, data.getDataX(i + 1), acceptableDelta);
+                assertEquals(t, data.getDataY(i + 1), acceptableDelta);
+            }
+        }
+        assertEquals(producers - 1, plot.getDataViewMaxY(), acceptableDelta);
+    }
+
+    @Test
+    public void testOfferWhilePublishing() throws InterruptedException {
+        int producers = 3, perProducer = 3000, window = 1000;
+        TimeSeriesPlot plot = new TimeSeriesPlot(0, 0, 100, 100, window + 1, 256);
+        for (int i = 0; i < producers; i++) {
+            plot.plot(i, -1, 0).downsample(100).publish(); // drawn from published copies
+        }
+
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!plot.offer(id, i, id + Math.sin(i))) {
+                        Thread.yield(); // queue full until the next draw
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        // every draw drains the queue and publishes the datasets it added to
+        RasterRenderer renderer = new RasterRenderer(100, 100);
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                plot.draw(renderer);
+            }
+            thread.join();
+        }
+        plot.draw(renderer);
+
+        for (int t = 0; t < producers; t++) {
+            PlotData data = plot.getDatasets().get(t).getPublished();
+            assertNotSame(plot.getDatasets().get(t), data);
+            assertEquals(window, data.size());
+            for (int k = 0; k < window; k++) {
+                int i = perProducer - window + k;
+                assertEquals(i, data.getDataX(k), acceptableDelta);
+                assertEquals(t + Math.sin(i), data.getDataY(k), acceptableDelta);
+            }
+            assertEquals(perProducer - window, data.getDataMinX(), acceptableDelta);
+            assertEquals(perProducer - 1, data.getDataMaxX(), acceptableDelta);
+        }
+        assertEquals(perProducer - 1, plot.getDataViewMaxX(), acceptableDelta);
+    }
+}